@@ -0,0 +1,30 @@
+package com.loopify.apigateway.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * Upstream response captured by the gateway. Headers are a read-only copy without hop-by-hop,
+ * CORS and cookie headers, the ETag is the upstream one or generated from the body.
+ */
+public record CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body, String etag,
+                             long storedAtNanos, long ttlNanos) {
+
+    // Rough per-entry overhead on top of the body, used by the cache weigher
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    public int weight() {
+        int headerBytes = 0;
+        for (var header : headers.entrySet()) {
+            headerBytes += header.getKey().length();
+            for (String value : header.getValue()) {
+                headerBytes += value.length();
+            }
+        }
+        return ENTRY_OVERHEAD_BYTES + body.length + headerBytes;
+    }
+
+    public long ageSeconds() {
+        return (System.nanoTime() - storedAtNanos) / 1_000_000_000L;
+    }
+}
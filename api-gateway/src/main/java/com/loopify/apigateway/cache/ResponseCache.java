@@ -0,0 +1,128 @@
+package com.loopify.apigateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.loopify.apigateway.filter.SkipPathMatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memory-bounded store behind {@link com.loopify.apigateway.filter.ResponseCacheFilter}.
+ * <p>
+ * Entries are weighed by their size and each one expires after its own TTL. Misses are coalesced: the first
+ * request for a key becomes the leader and goes upstream, identical requests arriving meanwhile wait for
+ * the leader's response instead of hitting the upstream as well.
+ */
+@Component
+@Slf4j
+public class ResponseCache {
+
+    private record CompiledRule(SkipPathMatcher matcher, Duration ttl) {
+    }
+
+    private final ResponseCacheProperties properties;
+    private final SkipPathMatcher excludedPaths;
+    private final List<CompiledRule> rules = new ArrayList<>();
+    private final Cache<String, CachedResponse> store;
+    private final Map<String, Sinks.One<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public ResponseCache(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.excludedPaths = SkipPathMatcher.compile(properties.getExcludePaths());
+        for (ResponseCacheProperties.Rule rule : properties.getRules()) {
+            rules.add(new CompiledRule(SkipPathMatcher.compile(rule.getPaths()), rule.getTtl()));
+        }
+        this.store = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxSize().toBytes())
+                .weigher((String key, CachedResponse value) -> value.weight())
+                .expireAfter(new ResponseExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, store, "gateway-responses");
+        log.info("Response cache initialized with {} rules, max size: {}", rules.size(), properties.getMaxSize());
+    }
+
+    /**
+     * @return the TTL of the first rule matching the path, or null when responses for it are never cached
+     */
+    public Duration ttlFor(String path) {
+        if (!properties.isEnabled() || excludedPaths.matches(path)) {
+            return null;
+        }
+        for (CompiledRule rule : rules) {
+            if (rule.matcher().matches(path)) {
+                return rule.ttl();
+            }
+        }
+        return null;
+    }
+
+    public CachedResponse get(String key) {
+        return store.getIfPresent(key);
+    }
+
+    public void put(String key, CachedResponse response) {
+        if (response.body().length <= properties.getMaxEntrySize().toBytes()) {
+            store.put(key, response);
+        }
+    }
+
+    /**
+     * Registers the caller as the leader for a miss on {@code key}.
+     *
+     * @return null if the caller is the leader and must go upstream, otherwise a Mono with the leader's
+     * response that completes empty if the leader's response could not be cached or took too long
+     */
+    public Mono<CachedResponse> joinInFlight(String key, Sinks.One<CachedResponse> leaderSink) {
+        Sinks.One<CachedResponse> existing = inFlight.putIfAbsent(key, leaderSink);
+        if (existing == null) {
+            return null;
+        }
+        return existing.asMono().timeout(properties.getCoalesceTimeout(), Mono.empty());
+    }
+
+    /**
+     * Releases waiting requests, with the response or empty. Safe to call more than once per leader.
+     */
+    public void completeInFlight(String key, Sinks.One<CachedResponse> leaderSink, CachedResponse response) {
+        inFlight.remove(key, leaderSink);
+        if (response != null) {
+            leaderSink.tryEmitValue(response);
+        } else {
+            leaderSink.tryEmitEmpty();
+        }
+    }
+
+    public long getMaxEntryBytes() {
+        return properties.getMaxEntrySize().toBytes();
+    }
+
+    private static class ResponseExpiry implements Expiry<String, CachedResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+            return value.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return value.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.loopify.apigateway.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "app.response-cache")
+public class ResponseCacheProperties {
+
+    private boolean enabled = true;
+
+    // Total body + header bytes kept in memory, least recently used entries go first
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+
+    // Larger responses are passed through without being cached
+    private DataSize maxEntrySize = DataSize.ofKilobytes(256);
+
+    // How long concurrent identical misses wait for the leading request before going upstream themselves
+    private Duration coalesceTimeout = Duration.ofSeconds(5);
+
+    // GET paths never served from the cache even when a rule matches (same syntax as the rule paths)
+    private List<String> excludePaths = new ArrayList<>();
+
+    // First matching rule wins
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    public static class Rule {
+        // Path patterns, '*' matches one segment and a trailing '/**' everything below
+        private List<String> paths = new ArrayList<>();
+        // Upper bound, a shorter max-age/s-maxage from the upstream wins
+        private Duration ttl = Duration.ofSeconds(10);
+    }
+}
@@ -0,0 +1,154 @@
+package com.loopify.apigateway.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Failure-rate circuit breaker over a fixed time window.
+ * <p>
+ * CLOSED lets everything through and opens once {@code minimumCalls} calls in the current window fail at
+ * {@code failureRateThreshold} or more. OPEN rejects until {@code openDuration} has passed, then HALF_OPEN
+ * admits {@code halfOpenProbes} calls: all of them succeeding closes the breaker, any failure re-opens it.
+ * <p>
+ * Every admitted call holds a {@link Permit} and must report exactly one outcome with it: success, failure
+ * or cancel. The permit belongs to the state generation that admitted the call, so outcomes arriving after a
+ * state change are ignored; a call admitted while CLOSED can't count as a probe. A cancelled probe is
+ * neutral and hands its slot back.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    /**
+     * One state generation, shared by all calls it admitted. Probe counters live here, so a new
+     * generation starts with fresh ones.
+     */
+    public static final class Permit {
+        private final State state;
+        private final long openedAt;
+        private final AtomicInteger probesIssued = new AtomicInteger();
+        private final AtomicInteger probesSucceeded = new AtomicInteger();
+
+        private Permit(State state, long openedAt) {
+            this.state = state;
+            this.openedAt = openedAt;
+        }
+    }
+
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long windowNanos;
+    private final long openNanos;
+    private final int halfOpenProbes;
+
+    private final AtomicReference<Permit> generation = new AtomicReference<>(new Permit(State.CLOSED, 0));
+
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger windowCalls = new AtomicInteger();
+    private final AtomicInteger windowFailures = new AtomicInteger();
+
+    public CircuitBreaker(ConcurrencyProperties.RouteSettings settings) {
+        this.failureRateThreshold = settings.getFailureRateThreshold();
+        this.minimumCalls = settings.getMinimumCalls();
+        this.windowNanos = settings.getWindow().toNanos();
+        this.openNanos = settings.getOpenDuration().toNanos();
+        this.halfOpenProbes = settings.getHalfOpenProbes();
+    }
+
+    /**
+     * @return the permit for the call, or null if the call is rejected
+     */
+    public Permit tryAcquire() {
+        while (true) {
+            Permit current = generation.get();
+            if (current.state == State.CLOSED) {
+                return current;
+            }
+            if (current.state == State.OPEN) {
+                if (System.nanoTime() - current.openedAt < openNanos) {
+                    return null;
+                }
+                // Lost races just retry against whichever generation won
+                generation.compareAndSet(current, new Permit(State.HALF_OPEN, current.openedAt));
+                continue;
+            }
+            if (current.probesIssued.incrementAndGet() <= halfOpenProbes) {
+                return current;
+            }
+            current.probesIssued.decrementAndGet();
+            return null;
+        }
+    }
+
+    public void onSuccess(Permit permit) {
+        if (generation.get() != permit) {
+            return;
+        }
+        if (permit.state == State.HALF_OPEN) {
+            if (permit.probesSucceeded.incrementAndGet() >= halfOpenProbes
+                    && generation.compareAndSet(permit, new Permit(State.CLOSED, 0))) {
+                resetWindow(System.nanoTime());
+            }
+            return;
+        }
+        record(permit, false);
+    }
+
+    public void onFailure(Permit permit) {
+        if (generation.get() != permit) {
+            return;
+        }
+        if (permit.state == State.HALF_OPEN) {
+            open(permit);
+            return;
+        }
+        record(permit, true);
+    }
+
+    /**
+     * The caller went away before an outcome was known. Neutral for the failure rate; a probe slot is
+     * handed back so the half-open phase can still complete.
+     */
+    public void onCancel(Permit permit) {
+        if (permit.state == State.HALF_OPEN && generation.get() == permit) {
+            permit.probesIssued.decrementAndGet();
+        }
+    }
+
+    // Seconds until the next half-open probe, used for Retry-After
+    public long retryAfterSeconds() {
+        long remaining = openNanos - (System.nanoTime() - generation.get().openedAt);
+        return Math.max(1, (remaining + 999_999_999L) / 1_000_000_000L);
+    }
+
+    public State getState() {
+        return generation.get().state;
+    }
+
+    private void record(Permit permit, boolean failure) {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+            windowCalls.set(0);
+            windowFailures.set(0);
+        }
+        int calls = windowCalls.incrementAndGet();
+        int failures = failure ? windowFailures.incrementAndGet() : windowFailures.get();
+        if (failure && calls >= minimumCalls && (double) failures / calls >= failureRateThreshold) {
+            open(permit);
+        }
+    }
+
+    private void open(Permit current) {
+        generation.compareAndSet(current, new Permit(State.OPEN, System.nanoTime()));
+    }
+
+    private void resetWindow(long now) {
+        windowStart.set(now);
+        windowCalls.set(0);
+        windowFailures.set(0);
+    }
+}
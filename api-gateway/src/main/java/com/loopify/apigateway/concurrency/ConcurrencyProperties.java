@@ -0,0 +1,36 @@
+package com.loopify.apigateway.concurrency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "app.concurrency")
+public class ConcurrencyProperties {
+
+    private boolean enabled = true;
+
+    // Keyed by gateway route id, routes without an entry are not guarded
+    private Map<String, RouteSettings> routes = new HashMap<>();
+
+    @Data
+    public static class RouteSettings {
+        // --- adaptive limit ---
+        private int initialLimit = 20;
+        private int minLimit = 4;
+        private int maxLimit = 200;
+        // latency may grow up to this factor over the no-load latency before the limit shrinks
+        private double rttTolerance = 2.0;
+        private double smoothing = 0.2;
+
+        // --- circuit breaker ---
+        private double failureRateThreshold = 0.5;
+        private int minimumCalls = 20;
+        private Duration window = Duration.ofSeconds(10);
+        private Duration openDuration = Duration.ofSeconds(10);
+        private int halfOpenProbes = 5;
+    }
+}
@@ -0,0 +1,87 @@
+package com.loopify.apigateway.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that follows the latency gradient of the upstream.
+ * <p>
+ * The limit grows while response times stay close to the best observed ("no-load") latency and shrinks as
+ * soon as they stretch, i.e. when requests start queueing inside the upstream. Failures cut the limit
+ * multiplicatively. Acquiring is a single atomic increment; only the sample update takes a short lock.
+ */
+public class GradientConcurrencyLimiter {
+
+    // Forget the no-load latency every so often so the limiter follows a permanently slower upstream
+    private static final int MIN_RTT_RESET_SAMPLES = 1000;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    private long minRttNanos = Long.MAX_VALUE;
+    private int samplesSinceReset;
+
+    public GradientConcurrencyLimiter(ConcurrencyProperties.RouteSettings settings) {
+        this.minLimit = settings.getMinLimit();
+        this.maxLimit = settings.getMaxLimit();
+        this.rttTolerance = settings.getRttTolerance();
+        this.smoothing = settings.getSmoothing();
+        this.limit = settings.getInitialLimit();
+    }
+
+    public boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > (int) limit) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Releases a slot taken by {@link #tryAcquire()}.
+     *
+     * @param rttNanos upstream latency, or a negative value when the call produced no usable sample
+     * @param dropped  whether the upstream failed or timed out
+     */
+    public void release(long rttNanos, boolean dropped) {
+        int inFlightAtRelease = inFlight.getAndDecrement();
+        if (rttNanos < 0) {
+            return;
+        }
+        synchronized (this) {
+            double current = limit;
+            double next;
+            if (dropped) {
+                next = current * BACKOFF_RATIO;
+            } else {
+                if (++samplesSinceReset >= MIN_RTT_RESET_SAMPLES) {
+                    samplesSinceReset = 0;
+                    minRttNanos = rttNanos;
+                }
+                minRttNanos = Math.min(minRttNanos, rttNanos);
+
+                double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * minRttNanos / (double) rttNanos));
+                double target = current * gradient + Math.sqrt(current);
+                // Don't inflate the limit while it isn't being used
+                if (target > current && inFlightAtRelease < current / 2) {
+                    return;
+                }
+                next = current * (1 - smoothing) + target * smoothing;
+            }
+            limit = Math.max(minLimit, Math.min(maxLimit, next));
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,46 @@
+package com.loopify.apigateway.concurrency;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Concurrency limiter and circuit breaker for every route listed under {@code app.concurrency.routes},
+ * created once at startup and published as gauges tagged with the route id.
+ */
+@Component
+@Slf4j
+public class RouteGuards {
+
+    public record Guard(GradientConcurrencyLimiter limiter, CircuitBreaker breaker) {
+    }
+
+    private final Map<String, Guard> guards = new HashMap<>();
+
+    public RouteGuards(ConcurrencyProperties properties, MeterRegistry meterRegistry) {
+        properties.getRoutes().forEach((routeId, settings) -> {
+            Guard guard = new Guard(new GradientConcurrencyLimiter(settings), new CircuitBreaker(settings));
+            guards.put(routeId, guard);
+
+            Gauge.builder("gateway.concurrency.limit", guard.limiter(), GradientConcurrencyLimiter::getLimit)
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+            Gauge.builder("gateway.concurrency.inflight", guard.limiter(), GradientConcurrencyLimiter::getInFlight)
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+            // 0 = closed, 1 = half-open, 2 = open
+            Gauge.builder("gateway.circuit.state", guard.breaker(), b -> b.getState().ordinal())
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+            log.info("Concurrency guard enabled for route: {}, initial limit: {}", routeId, settings.getInitialLimit());
+        });
+    }
+
+    public Guard get(String routeId) {
+        return guards.get(routeId);
+    }
+}
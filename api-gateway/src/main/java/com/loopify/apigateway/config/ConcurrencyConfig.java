@@ -0,0 +1,10 @@
+package com.loopify.apigateway.config;
+
+import com.loopify.apigateway.concurrency.ConcurrencyProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ConcurrencyProperties.class)
+public class ConcurrencyConfig {
+}
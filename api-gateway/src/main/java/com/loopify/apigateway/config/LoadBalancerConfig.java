@@ -0,0 +1,13 @@
+package com.loopify.apigateway.config;
+
+import com.loopify.apigateway.loadbalancer.ChatServiceLoadBalancerConfig;
+import com.loopify.apigateway.loadbalancer.StickyRoutingProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(StickyRoutingProperties.class)
+@LoadBalancerClient(name = "chat-service", configuration = ChatServiceLoadBalancerConfig.class)
+public class LoadBalancerConfig {
+}
@@ -0,0 +1,26 @@
+package com.loopify.apigateway.config;
+
+import com.loopify.apigateway.ratelimit.LocalRateLimiter;
+import com.loopify.apigateway.ratelimit.RateLimitProperties;
+import com.loopify.apigateway.ratelimit.RateLimiter;
+import com.loopify.apigateway.ratelimit.RedisRateLimiter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+
+    @Bean
+    public RateLimiter rateLimiter(RateLimitProperties properties,
+                                   ObjectProvider<ReactiveStringRedisTemplate> redisTemplate) {
+        LocalRateLimiter local = new LocalRateLimiter(properties.getStripes());
+        if (properties.getMode() == RateLimitProperties.Mode.REDIS) {
+            return new RedisRateLimiter(redisTemplate.getObject(), local, properties);
+        }
+        return local;
+    }
+}
@@ -0,0 +1,96 @@
+package com.loopify.apigateway.filter;
+
+import com.loopify.apigateway.concurrency.CircuitBreaker;
+import com.loopify.apigateway.concurrency.ConcurrencyProperties;
+import com.loopify.apigateway.concurrency.RouteGuards;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Sheds load before it reaches a struggling upstream. Each guarded route has an adaptive concurrency limit
+ * driven by upstream latency and a circuit breaker driven by 5xx/error rate; both reject with 503 and
+ * Retry-After. Everything is counters and atomics, nothing on the request path blocks.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdaptiveConcurrencyFilter implements GlobalFilter, Ordered {
+
+    private final RouteGuards routeGuards;
+    private final ConcurrencyProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled() || isWebSocketUpgrade(exchange)) {
+            // A WebSocket session would hold a slot for its whole lifetime and skew the latency samples
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        RouteGuards.Guard guard = route != null ? routeGuards.get(route.getId()) : null;
+        if (guard == null) {
+            return chain.filter(exchange);
+        }
+        String routeId = route.getId();
+
+        if (!guard.limiter().tryAcquire()) {
+            return reject(exchange, routeId, "limit", 1);
+        }
+        CircuitBreaker.Permit permit = guard.breaker().tryAcquire();
+        if (permit == null) {
+            guard.limiter().release(-1, false);
+            return reject(exchange, routeId, "circuit_open", guard.breaker().retryAfterSeconds());
+        }
+
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    if (signal == SignalType.CANCEL) {
+                        // Client went away, the latency says nothing about the upstream
+                        guard.limiter().release(-1, false);
+                        guard.breaker().onCancel(permit);
+                        return;
+                    }
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    boolean failed = signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError());
+                    guard.limiter().release(System.nanoTime() - start, failed);
+                    if (failed) {
+                        guard.breaker().onFailure(permit);
+                    } else {
+                        guard.breaker().onSuccess(permit);
+                    }
+                });
+    }
+
+    private static boolean isWebSocketUpgrade(ServerWebExchange exchange) {
+        return "websocket".equalsIgnoreCase(exchange.getRequest().getHeaders().getUpgrade());
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, String routeId, String reason, long retryAfterSeconds) {
+        log.debug("Concurrency guard rejected request, route: {}, reason: {}", routeId, reason);
+        meterRegistry.counter("gateway.concurrency.rejected", "route", routeId, "reason", reason).increment();
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return response.setComplete();
+    }
+
+    @Override
+    public int getOrder() {
+        return -80; // After rate limiting, so rejected clients never take a concurrency slot
+    }
+}
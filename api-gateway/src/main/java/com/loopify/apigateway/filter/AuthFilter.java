@@ -1,8 +1,12 @@
 package com.loopify.apigateway.filter;
 
+import com.loopify.apigateway.metrics.GatewayMetrics;
 import com.loopify.apigateway.security.JwtService;
+import com.loopify.apigateway.security.TokenRevocationService;
+import com.loopify.apigateway.security.VerifiedToken;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -25,21 +29,34 @@ import java.util.List;
 public class AuthFilter implements GlobalFilter, Ordered {
 
     private final JwtService jwtService;
+    private final GatewayMetrics gatewayMetrics;
+    private final TokenRevocationService tokenRevocationService;
+    private final ClientAddressResolver clientAddressResolver;
 
     @Value("${app.auth.skip-paths}")
     private List<String> skipPaths;
 
+    private SkipPathMatcher skipPathMatcher;
+
     private static final String USER_EMAIL_HEADER = "X-User-Email";
+    private static final String USER_ID_HEADER = "X-User-Id";
+    private static final String CLIENT_IP_HEADER = "X-Client-Ip";
+
+    @PostConstruct
+    void compileSkipPaths() {
+        this.skipPathMatcher = SkipPathMatcher.compile(skipPaths);
+    }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        ServerHttpRequest request = exchange.getRequest();
+        // Downstream services trust these headers blindly, so never let a client supply them
+        ServerHttpRequest request = resetTrustedHeaders(exchange.getRequest(), clientAddressResolver.resolve(exchange));
         String path = request.getURI().getPath();
 
         // 1. Skip authentication for public paths
         if (isSkipped(path)) {
             log.debug("Skipping auth for path: {}", path);
-            return chain.filter(exchange);
+            return chain.filter(exchange.mutate().request(request).build());
         }
 
         // 2. Get Authorization header
@@ -53,28 +70,42 @@ public class AuthFilter implements GlobalFilter, Ordered {
         // 3. Extract token
         String jwt = authHeader.substring(7);
 
+        long validationStart = System.nanoTime();
         try {
-            // 4. Validate token and extract email (or user ID)
-            String email = jwtService.extractUsername(jwt);
-
-            if (email != null && !jwtService.isTokenExpired(jwt)) {
-                log.debug("JWT validated for user: {}, path: {}", email, path);
-
-                // 5. Add user email header to the request before forwarding
-                ServerHttpRequest modifiedRequest = request.mutate()
-                        .header(USER_EMAIL_HEADER, email)
-                        .build();
-
-                // 6. Continue the filter chain with the modified request
-                return chain.filter(exchange.mutate().request(modifiedRequest).build());
-            } else {
-                log.warn("JWT validation failed or email null for path: {}", path);
-                return handleUnauthorized(exchange, "Invalid or expired token");
+            // 4. Validate token once (signature + expiration) and extract email (or user ID)
+            VerifiedToken token = jwtService.validateToken(jwt);
+            gatewayMetrics.recordJwtValidation(System.nanoTime() - validationStart, GatewayMetrics.JwtOutcome.VALID);
+            String email = token.subject();
+            log.debug("JWT validated for user: {}, path: {}", email, path);
+
+            // 5. Add user email and id headers to the request before forwarding
+            ServerHttpRequest.Builder builder = request.mutate().header(USER_EMAIL_HEADER, email);
+            if (token.userId() != null) {
+                builder.header(USER_ID_HEADER, String.valueOf(token.userId()));
+            }
+            ServerHttpRequest modifiedRequest = builder.build();
+            ServerWebExchange authenticated = exchange.mutate().request(modifiedRequest).build();
+
+            // 6. Reject tokens revoked on logout, Redis is only asked when the local filter hits
+            if (token.tokenId() != null && tokenRevocationService.mightBeRevoked(token.tokenId())) {
+                return tokenRevocationService.isRevoked(token.tokenId())
+                        .flatMap(revoked -> {
+                            if (revoked) {
+                                log.warn("Revoked JWT received for path: {}", path);
+                                return handleUnauthorized(exchange, "Token revoked");
+                            }
+                            return chain.filter(authenticated);
+                        });
             }
+
+            // 7. Continue the filter chain with the modified request
+            return chain.filter(authenticated);
         } catch (ExpiredJwtException e) {
+            gatewayMetrics.recordJwtValidation(System.nanoTime() - validationStart, GatewayMetrics.JwtOutcome.EXPIRED);
             log.warn("Expired JWT received for path: {}: {}", path, e.getMessage());
             return handleUnauthorized(exchange, "Token expired");
         } catch (JwtException | IllegalArgumentException e) {
+            gatewayMetrics.recordJwtValidation(System.nanoTime() - validationStart, GatewayMetrics.JwtOutcome.INVALID);
             log.error("JWT parsing/validation error for path: {}: {}", path, e.getMessage());
             return handleUnauthorized(exchange, "Invalid token");
         } catch (Exception e) {
@@ -83,8 +114,30 @@ public class AuthFilter implements GlobalFilter, Ordered {
         }
     }
 
+    // The resolved client address is forwarded as X-Client-Ip, read by RateLimitFilter and downstream throttles
+    private ServerHttpRequest resetTrustedHeaders(ServerHttpRequest request, String clientIp) {
+        HttpHeaders headers = request.getHeaders();
+        if (headers.containsKey(USER_EMAIL_HEADER) || headers.containsKey(USER_ID_HEADER)
+                || headers.containsKey(CLIENT_IP_HEADER)) {
+            log.warn("Dropping client supplied trusted headers for path: {}", request.getURI().getPath());
+        }
+        return request.mutate()
+                .headers(h -> {
+                    h.remove(USER_EMAIL_HEADER);
+                    h.remove(USER_ID_HEADER);
+                    h.remove(CLIENT_IP_HEADER);
+                    if (clientIp != null) {
+                        h.set(CLIENT_IP_HEADER, clientIp);
+                    }
+                })
+                .build();
+    }
+
     private boolean isSkipped(String path) {
-        return skipPaths.stream().anyMatch(p -> path.startsWith(p.replace("/**", "")));
+        long start = System.nanoTime();
+        boolean skipped = skipPathMatcher.matches(path);
+        gatewayMetrics.recordSkipPathDecision(System.nanoTime() - start, skipped);
+        return skipped;
     }
 
     private Mono<Void> handleUnauthorized(ServerWebExchange exchange, String message) {
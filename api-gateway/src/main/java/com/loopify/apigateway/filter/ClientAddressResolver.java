@@ -0,0 +1,33 @@
+package com.loopify.apigateway.filter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.support.ipresolver.XForwardedRemoteAddressResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Resolves the address of the client that called the outermost proxy.
+ * <p>
+ * Every trusted proxy in front of the gateway appends the address it was called from to X-Forwarded-For,
+ * so the client is the entry {@code app.client-ip.trusted-proxies} positions from the right. Entries further
+ * left were sent by the client and are ignored. Without the header the socket peer is used.
+ */
+@Component
+public class ClientAddressResolver {
+
+    private final XForwardedRemoteAddressResolver resolver;
+
+    public ClientAddressResolver(@Value("${app.client-ip.trusted-proxies:1}") int trustedProxies) {
+        this.resolver = XForwardedRemoteAddressResolver.maxTrustedIndex(trustedProxies);
+    }
+
+    /**
+     * @return the client address, or {@code null} if it cannot be determined
+     */
+    public String resolve(ServerWebExchange exchange) {
+        InetSocketAddress address = resolver.resolve(exchange);
+        return address != null ? address.getHostString() : null;
+    }
+}
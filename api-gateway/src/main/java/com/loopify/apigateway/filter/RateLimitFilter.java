@@ -0,0 +1,92 @@
+package com.loopify.apigateway.filter;
+
+import com.loopify.apigateway.ratelimit.RateLimitProperties;
+import com.loopify.apigateway.ratelimit.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Admission control per route: a per-user bucket (keyed by X-User-Id, or client address for public paths)
+ * and a per-route bucket protecting the upstream as a whole. Limits come from {@code app.rate-limit.routes}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitFilter implements GlobalFilter, Ordered {
+
+    private final RateLimiter rateLimiter;
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    // Set by AuthFilter after the token has been validated
+    private static final String USER_ID_HEADER = "X-User-Id";
+    // Set by AuthFilter from X-Forwarded-For, the socket peer is always the proxy in front of the gateway
+    private static final String CLIENT_IP_HEADER = "X-Client-Ip";
+    private static final String ROUTE_BUCKET_KEY = "*";
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        RateLimitProperties.RouteLimits limits = route != null ? properties.getRoutes().get(route.getId()) : null;
+        if (limits == null) {
+            return chain.filter(exchange);
+        }
+        String routeId = route.getId();
+
+        // Per-user first, so a rejected noisy client does not drain the shared route bucket
+        return acquire(routeId, "user", resolveClientKey(exchange), limits.getPerUser())
+                .flatMap(admitted -> admitted
+                        ? acquire(routeId, "route", ROUTE_BUCKET_KEY, limits.getPerRoute())
+                        : Mono.just(false))
+                .flatMap(admitted -> admitted ? chain.filter(exchange) : reject(exchange, routeId));
+    }
+
+    private Mono<Boolean> acquire(String routeId, String scope, String key, RateLimitProperties.BucketSpec spec) {
+        if (spec == null) {
+            return Mono.just(true);
+        }
+        return rateLimiter.tryAcquire(routeId + ":" + scope, key, spec)
+                .doOnNext(admitted -> {
+                    if (!admitted) {
+                        meterRegistry.counter("gateway.ratelimit.rejected", "route", routeId, "scope", scope).increment();
+                    }
+                });
+    }
+
+    private String resolveClientKey(ServerWebExchange exchange) {
+        String userId = exchange.getRequest().getHeaders().getFirst(USER_ID_HEADER);
+        if (userId != null) {
+            return "u" + userId;
+        }
+        String clientIp = exchange.getRequest().getHeaders().getFirst(CLIENT_IP_HEADER);
+        return clientIp != null ? "ip" + clientIp : "anonymous";
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, String routeId) {
+        log.debug("Rate limit exceeded for route: {}, path: {}", routeId, exchange.getRequest().getURI().getPath());
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        return response.setComplete();
+    }
+
+    @Override
+    public int getOrder() {
+        return -90; // Right after AuthFilter so the user id header is available
+    }
+}
@@ -0,0 +1,283 @@
+package com.loopify.apigateway.filter;
+
+import com.loopify.apigateway.cache.CachedResponse;
+import com.loopify.apigateway.cache.ResponseCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Serves idempotent GETs matching {@code app.response-cache.rules} from memory.
+ * <p>
+ * A response is stored only if it is a 200 without cookies and the upstream allows it: {@code no-store},
+ * {@code private} and {@code no-cache} keep it out, {@code s-maxage}/{@code max-age} shorten the rule TTL.
+ * Clients sending {@code no-cache} bypass the lookup, {@code no-store} bypasses the cache completely.
+ * Every cached response carries an ETag (the upstream's, or a body hash) and a matching If-None-Match gets 304.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+
+    private static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    // Never replayed from the cache: connection-specific, set per request by the gateway, or per client
+    private static final Set<String> EXCLUDED_HEADERS = Set.of(
+            HttpHeaders.CONNECTION.toLowerCase(Locale.ROOT),
+            HttpHeaders.TRANSFER_ENCODING.toLowerCase(Locale.ROOT),
+            HttpHeaders.CONTENT_LENGTH.toLowerCase(Locale.ROOT),
+            HttpHeaders.SET_COOKIE.toLowerCase(Locale.ROOT),
+            "keep-alive");
+
+    private final ResponseCache responseCache;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+        Duration ruleTtl = responseCache.ttlFor(request.getPath().value());
+        if (ruleTtl == null) {
+            return chain.filter(exchange);
+        }
+        String requestCacheControl = request.getHeaders().getCacheControl();
+        if (hasDirective(requestCacheControl, "no-store")) {
+            return chain.filter(exchange);
+        }
+
+        String key = cacheKey(request);
+        if (!hasDirective(requestCacheControl, "no-cache")) {
+            CachedResponse cached = responseCache.get(key);
+            if (cached != null) {
+                return serve(exchange, cached, "HIT");
+            }
+        }
+
+        Sinks.One<CachedResponse> leaderSink = Sinks.one();
+        Mono<CachedResponse> leaderResponse = responseCache.joinInFlight(key, leaderSink);
+        if (leaderResponse != null) {
+            // serve() completes empty, so wrap the result to tell "served" apart from "leader had nothing"
+            return leaderResponse
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(response -> {
+                        if (response.isPresent()) {
+                            meterRegistry.counter("gateway.response.cache.coalesced").increment();
+                            return serve(exchange, response.get(), "HIT");
+                        }
+                        return chain.filter(exchange);
+                    });
+        }
+
+        CapturingResponse capturing = new CapturingResponse(exchange, key, ruleTtl, leaderSink);
+        return chain.filter(exchange.mutate().response(capturing).build())
+                .doFinally(signal -> responseCache.completeInFlight(key, leaderSink, null));
+    }
+
+    private Mono<Void> serve(ServerWebExchange exchange, CachedResponse cached, String cacheStatus) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.addAll(cached.headers());
+        headers.setETag(cached.etag());
+        headers.set(HttpHeaders.AGE, String.valueOf(cached.ageSeconds()));
+        headers.set(CACHE_STATUS_HEADER, cacheStatus);
+
+        if (etagMatches(exchange.getRequest().getHeaders(), cached.etag())) {
+            return notModified(response);
+        }
+        response.setStatusCode(cached.status());
+        headers.setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private static Mono<Void> notModified(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.NOT_MODIFIED);
+        response.getHeaders().remove(HttpHeaders.CONTENT_TYPE);
+        response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+        return response.setComplete();
+    }
+
+    private static String cacheKey(ServerHttpRequest request) {
+        String query = request.getURI().getRawQuery();
+        return query == null ? request.getPath().value() : request.getPath().value() + "?" + query;
+    }
+
+    /**
+     * @return how long the response may be cached, or null if the upstream forbids it
+     */
+    private static Duration storableFor(HttpStatusCode status, HttpHeaders headers, Duration ruleTtl) {
+        if (status == null || status.value() != HttpStatus.OK.value() || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return null;
+        }
+        if (headers.getVary().contains("*")) {
+            return null;
+        }
+        String cacheControl = headers.getCacheControl();
+        if (hasDirective(cacheControl, "no-store") || hasDirective(cacheControl, "private")
+                || hasDirective(cacheControl, "no-cache")) {
+            return null;
+        }
+        // Shared caches prefer s-maxage over max-age
+        long maxAge = directiveSeconds(cacheControl, "s-maxage");
+        if (maxAge < 0) {
+            maxAge = directiveSeconds(cacheControl, "max-age");
+        }
+        if (maxAge == 0) {
+            return null;
+        }
+        return maxAge > 0 && maxAge < ruleTtl.toSeconds() ? Duration.ofSeconds(maxAge) : ruleTtl;
+    }
+
+    private static boolean hasDirective(String cacheControl, String directive) {
+        if (cacheControl == null) {
+            return false;
+        }
+        for (String part : cacheControl.split(",")) {
+            String name = part.trim();
+            int eq = name.indexOf('=');
+            if ((eq < 0 ? name : name.substring(0, eq).trim()).equalsIgnoreCase(directive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Value of a delta-seconds directive, -1 if absent or malformed
+    private static long directiveSeconds(String cacheControl, String directive) {
+        if (cacheControl == null) {
+            return -1;
+        }
+        for (String part : cacheControl.split(",")) {
+            String[] nameValue = part.trim().split("=", 2);
+            if (nameValue.length == 2 && nameValue[0].trim().equalsIgnoreCase(directive)) {
+                try {
+                    return Long.parseLong(nameValue[1].trim().replace("\"", ""));
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Weak comparison as required for If-None-Match
+    private static boolean etagMatches(HttpHeaders requestHeaders, String etag) {
+        List<String> ifNoneMatch;
+        try {
+            ifNoneMatch = requestHeaders.getIfNoneMatch();
+        } catch (IllegalArgumentException e) {
+            return false; // malformed header, answer with the full response
+        }
+        String opaque = stripWeak(etag);
+        for (String candidate : ifNoneMatch) {
+            if ("*".equals(candidate) || stripWeak(candidate).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static HttpHeaders storableHeaders(HttpHeaders source) {
+        HttpHeaders copy = new HttpHeaders();
+        source.forEach((name, values) -> {
+            String lower = name.toLowerCase(Locale.ROOT);
+            // CORS headers are added by the gateway for the current request's origin
+            if (!EXCLUDED_HEADERS.contains(lower) && !lower.startsWith("access-control-")) {
+                copy.addAll(name, values);
+            }
+        });
+        return HttpHeaders.readOnlyHttpHeaders(copy);
+    }
+
+    /**
+     * Buffers the leader's response body, stores it if allowed and hands it to coalesced requests
+     * before writing it to the leader's own client.
+     */
+    private class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final String key;
+        private final Duration ruleTtl;
+        private final Sinks.One<CachedResponse> leaderSink;
+
+        CapturingResponse(ServerWebExchange exchange, String key, Duration ruleTtl,
+                          Sinks.One<CachedResponse> leaderSink) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+            this.ruleTtl = ruleTtl;
+            this.leaderSink = leaderSink;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            Duration ttl = storableFor(getStatusCode(), headers, ruleTtl);
+            long contentLength = headers.getContentLength();
+            if (ttl == null || contentLength > responseCache.getMaxEntryBytes()) {
+                headers.set(CACHE_STATUS_HEADER, "BYPASS");
+                return super.writeWith(body);
+            }
+
+            return DataBufferUtils.join(Flux.from(body))
+                    .flatMap(joined -> {
+                        byte[] bytes = new byte[joined.readableByteCount()];
+                        joined.read(bytes);
+                        DataBufferUtils.release(joined);
+
+                        String etag = headers.getETag() != null
+                                ? headers.getETag()
+                                : "\"0" + DigestUtils.md5DigestAsHex(bytes) + "\"";
+                        headers.setETag(etag);
+                        headers.set(CACHE_STATUS_HEADER, "MISS");
+
+                        CachedResponse cached = new CachedResponse(getStatusCode(), storableHeaders(headers), bytes,
+                                etag, System.nanoTime(), ttl.toNanos());
+                        responseCache.put(key, cached);
+                        responseCache.completeInFlight(key, leaderSink, cached);
+
+                        if (etagMatches(exchange.getRequest().getHeaders(), etag)) {
+                            return notModified(getDelegate());
+                        }
+                        headers.setContentLength(bytes.length);
+                        return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                    });
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return -85; // Behind auth and rate limiting, ahead of the concurrency limiter so hits never take a slot
+    }
+}
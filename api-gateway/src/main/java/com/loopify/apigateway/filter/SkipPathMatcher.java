@@ -0,0 +1,143 @@
+package com.loopify.apigateway.filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Segment trie compiled once from {@code app.auth.skip-paths}.
+ * <p>
+ * Supported patterns:
+ * <ul>
+ *     <li>{@code /api/v1/auth/refresh} - exact match (a trailing slash is tolerated)</li>
+ *     <li>{@code /api/v1/public/**} - the prefix itself and everything below it</li>
+ *     <li>{@code /api/v1/users/*}{@code /avatar} - {@code *} matches exactly one non-empty segment</li>
+ * </ul>
+ * Lookups walk the request path by index and compare segments in place, so they allocate nothing.
+ */
+public final class SkipPathMatcher {
+
+    private static final String SINGLE_WILDCARD = "*";
+    private static final String DESCENDANTS_WILDCARD = "**";
+
+    private final Node root;
+
+    private SkipPathMatcher(Node root) {
+        this.root = root;
+    }
+
+    public static SkipPathMatcher compile(Collection<String> patterns) {
+        Node root = new Node(null);
+        if (patterns != null) {
+            for (String raw : patterns) {
+                if (raw == null || raw.isBlank()) {
+                    continue;
+                }
+                insert(root, raw.trim());
+            }
+        }
+        root.freeze();
+        return new SkipPathMatcher(root);
+    }
+
+    public boolean matches(String path) {
+        if (path == null || path.isEmpty() || path.charAt(0) != '/') {
+            return false;
+        }
+        return matches(root, path, 1);
+    }
+
+    private static boolean matches(Node node, String path, int start) {
+        if (node.matchesDescendants) {
+            return true;
+        }
+        int length = path.length();
+        if (start >= length) {
+            return node.terminal;
+        }
+
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = length;
+        }
+        int segmentLength = end - start;
+        int next = end < length ? end + 1 : length;
+
+        for (Node child : node.children) {
+            String segment = child.segment;
+            if (segment.length() == segmentLength
+                    && path.regionMatches(start, segment, 0, segmentLength)
+                    && matches(child, path, next)) {
+                return true;
+            }
+        }
+        return node.wildcardChild != null && segmentLength > 0 && matches(node.wildcardChild, path, next);
+    }
+
+    private static void insert(Node root, String pattern) {
+        if (pattern.charAt(0) != '/') {
+            throw new IllegalArgumentException("Skip path must start with '/': " + pattern);
+        }
+        String[] segments = pattern.substring(1).split("/");
+        Node node = root;
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (DESCENDANTS_WILDCARD.equals(segment)) {
+                if (i != segments.length - 1) {
+                    throw new IllegalArgumentException("'/**' is only supported at the end of a skip path: " + pattern);
+                }
+                node.matchesDescendants = true;
+                return;
+            }
+            if (segment.isEmpty()) {
+                // "/" or a trailing slash, the current node is the end of the pattern
+                continue;
+            }
+            node = SINGLE_WILDCARD.equals(segment) ? node.wildcard() : node.child(segment);
+        }
+        node.terminal = true;
+    }
+
+    private static final class Node {
+        private final String segment;
+        private final List<Node> pending = new ArrayList<>();
+        private Node[] children = new Node[0];
+        private Node wildcardChild;
+        private boolean terminal;
+        private boolean matchesDescendants;
+
+        private Node(String segment) {
+            this.segment = segment;
+        }
+
+        private Node child(String segment) {
+            for (Node child : pending) {
+                if (child.segment.equals(segment)) {
+                    return child;
+                }
+            }
+            Node child = new Node(segment);
+            pending.add(child);
+            return child;
+        }
+
+        private Node wildcard() {
+            if (wildcardChild == null) {
+                wildcardChild = new Node(SINGLE_WILDCARD);
+            }
+            return wildcardChild;
+        }
+
+        // Arrays keep the lookup loop free of iterator allocations
+        private void freeze() {
+            children = pending.toArray(new Node[0]);
+            pending.clear();
+            for (Node child : children) {
+                child.freeze();
+            }
+            if (wildcardChild != null) {
+                wildcardChild.freeze();
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.loopify.apigateway.filter;
+
+import com.loopify.apigateway.metrics.GatewayMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times the upstream call per route id and status class and tracks requests in flight per route.
+ * Runs right before the routing filter, so requests answered by the gateway itself (auth failures,
+ * rate limiting, cache hits) are not counted as upstream traffic.
+ */
+@Component
+@RequiredArgsConstructor
+public class UpstreamMetricsFilter implements GlobalFilter, Ordered {
+
+    private final GatewayMetrics gatewayMetrics;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        String routeId = route.getId();
+        AtomicInteger inFlight = gatewayMetrics.inFlight(routeId);
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    inFlight.decrementAndGet();
+                    if (signal == SignalType.CANCEL) {
+                        return; // client went away, nothing to say about the upstream
+                    }
+                    HttpStatusCode status = signal == SignalType.ON_ERROR ? null : exchange.getResponse().getStatusCode();
+                    gatewayMetrics.recordUpstream(routeId, status, System.nanoTime() - start);
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyRoutingFilter.ORDER - 1;
+    }
+}
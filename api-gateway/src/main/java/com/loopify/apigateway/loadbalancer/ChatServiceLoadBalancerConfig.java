@@ -0,0 +1,27 @@
+package com.loopify.apigateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+/**
+ * Load balancer for chat-service, registered through {@code @LoadBalancerClient} in
+ * {@link com.loopify.apigateway.config.LoadBalancerConfig}. Deliberately not a {@code @Configuration}:
+ * it is loaded into the chat-service child context only and must stay out of component scanning.
+ */
+public class ChatServiceLoadBalancerConfig {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> userAffinityLoadBalancer(Environment environment,
+                                                                         LoadBalancerClientFactory clientFactory,
+                                                                         ReactiveStringRedisTemplate redisTemplate,
+                                                                         StickyRoutingProperties properties) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new UserAffinityLoadBalancer(serviceId,
+                clientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class), redisTemplate, properties);
+    }
+}
@@ -0,0 +1,20 @@
+package com.loopify.apigateway.loadbalancer;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.sticky-routing")
+public class StickyRoutingProperties {
+
+    // Prefer the instance recorded in the user's presence key over the hashed one
+    private boolean presenceOverride = true;
+
+    // Presence lookups slower than this are abandoned in favour of the hash
+    private Duration presenceTimeout = Duration.ofMillis(50);
+
+    // Service instance metadata key holding the id chat-service writes into the presence key
+    private String instanceIdMetadataKey = "instance-id";
+}
@@ -0,0 +1,144 @@
+package com.loopify.apigateway.loadbalancer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends all requests of a user to the same instance, so a user's WebSocket reconnects and pushes stay on
+ * one chat-service node.
+ * <p>
+ * The user is taken from X-User-Id (set by AuthFilter) or the {@code userId} query parameter of the
+ * WebSocket URL. If the user's presence key names a live instance that instance wins, otherwise the
+ * instance is picked by rendezvous hashing, which moves only the users of an added or removed instance.
+ * Requests without a user go round robin.
+ */
+@Slf4j
+public class UserAffinityLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private static final String USER_ID_HEADER = "X-User-Id";
+    private static final String USER_ID_PARAM = "userId";
+    // Written by chat-service UserPresenceService
+    private static final String PRESENCE_KEY_PREFIX = "user:presence:";
+
+    private final String serviceId;
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final StickyRoutingProperties properties;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    public UserAffinityLoadBalancer(String serviceId, ObjectProvider<ServiceInstanceListSupplier> supplierProvider,
+                                    ReactiveStringRedisTemplate redisTemplate, StickyRoutingProperties properties) {
+        this.serviceId = serviceId;
+        this.supplierProvider = supplierProvider;
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        String userId = resolveUserId(request);
+        return supplier.get(request).next()
+                .flatMap(instances -> {
+                    if (instances.isEmpty()) {
+                        log.warn("No servers available for service: {}", serviceId);
+                        return Mono.just(new EmptyResponse());
+                    }
+                    if (userId == null) {
+                        return Mono.just(response(instances.get(Math.floorMod(roundRobin.getAndIncrement(), instances.size()))));
+                    }
+                    ServiceInstance hashed = rendezvous(instances, userId);
+                    if (!properties.isPresenceOverride() || instances.size() == 1) {
+                        return Mono.just(response(hashed));
+                    }
+                    return presenceInstance(instances, userId)
+                            .defaultIfEmpty(hashed)
+                            .map(this::response);
+                });
+    }
+
+    private Response<ServiceInstance> response(ServiceInstance instance) {
+        return new DefaultResponse(instance);
+    }
+
+    private Mono<ServiceInstance> presenceInstance(List<ServiceInstance> instances, String userId) {
+        return redisTemplate.opsForValue().get(PRESENCE_KEY_PREFIX + userId)
+                .timeout(properties.getPresenceTimeout())
+                .flatMap(owner -> Mono.justOrEmpty(instances.stream()
+                        .filter(instance -> owner.equals(instanceKey(instance)))
+                        .findFirst()))
+                .onErrorResume(e -> {
+                    log.debug("Presence lookup failed for user: {}, using hashed instance: {}", userId, e.toString());
+                    return Mono.empty();
+                });
+    }
+
+    private ServiceInstance rendezvous(List<ServiceInstance> instances, String userId) {
+        long userHash = hash(userId);
+        ServiceInstance best = instances.get(0);
+        long bestScore = Long.MIN_VALUE;
+        for (ServiceInstance instance : instances) {
+            long score = mix(userHash ^ hash(instanceKey(instance)));
+            if (score > bestScore) {
+                bestScore = score;
+                best = instance;
+            }
+        }
+        return best;
+    }
+
+    private String instanceKey(ServiceInstance instance) {
+        String id = instance.getMetadata().get(properties.getInstanceIdMetadataKey());
+        if (id != null) {
+            return id;
+        }
+        return instance.getInstanceId() != null ? instance.getInstanceId() : instance.getHost() + ":" + instance.getPort();
+    }
+
+    private static String resolveUserId(Request request) {
+        if (!(request.getContext() instanceof RequestDataContext context) || context.getClientRequest() == null) {
+            return null;
+        }
+        RequestData data = context.getClientRequest();
+        String header = data.getHeaders().getFirst(USER_ID_HEADER);
+        if (header != null) {
+            return header;
+        }
+        return data.getUrl() == null ? null
+                : UriComponentsBuilder.fromUri(data.getUrl()).build().getQueryParams().getFirst(USER_ID_PARAM);
+    }
+
+    // 64-bit FNV-1a, String.hashCode leaves too few bits for scoring many instances
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // SplitMix64 finalizer so similar ids spread over all instances
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,89 @@
+package com.loopify.apigateway.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timers and gauges for the gateway's own work and for upstream calls, exported with p50/p99/p999 and
+ * histogram buckets so Prometheus can aggregate percentiles across replicas.
+ * <p>
+ * Meters are created once and cached here, recording on the request path does not touch the registry.
+ */
+@Component
+public class GatewayMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer jwtValid;
+    private final Timer jwtExpired;
+    private final Timer jwtInvalid;
+    private final Timer skipPathSkipped;
+    private final Timer skipPathProtected;
+
+    // "route|statusClass" -> timer
+    private final Map<String, Timer> upstreamTimers = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> inFlightByRoute = new ConcurrentHashMap<>();
+
+    public GatewayMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.jwtValid = timer("gateway.auth.jwt.validation", "outcome", "valid");
+        this.jwtExpired = timer("gateway.auth.jwt.validation", "outcome", "expired");
+        this.jwtInvalid = timer("gateway.auth.jwt.validation", "outcome", "invalid");
+        this.skipPathSkipped = timer("gateway.auth.skip.path", "decision", "skipped");
+        this.skipPathProtected = timer("gateway.auth.skip.path", "decision", "protected");
+    }
+
+    public void recordJwtValidation(long nanos, JwtOutcome outcome) {
+        switch (outcome) {
+            case VALID -> jwtValid.record(nanos, TimeUnit.NANOSECONDS);
+            case EXPIRED -> jwtExpired.record(nanos, TimeUnit.NANOSECONDS);
+            case INVALID -> jwtInvalid.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordSkipPathDecision(long nanos, boolean skipped) {
+        (skipped ? skipPathSkipped : skipPathProtected).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param status upstream status, or null when the call failed before a response arrived
+     */
+    public void recordUpstream(String routeId, HttpStatusCode status, long nanos) {
+        String statusClass = status == null ? "error" : (status.value() / 100) + "xx";
+        upstreamTimers.computeIfAbsent(routeId + "|" + statusClass,
+                        k -> timer("gateway.upstream.latency", "route", routeId, "status", statusClass))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public AtomicInteger inFlight(String routeId) {
+        return inFlightByRoute.computeIfAbsent(routeId, id -> {
+            AtomicInteger counter = new AtomicInteger();
+            Gauge.builder("gateway.upstream.inflight", counter, AtomicInteger::get)
+                    .tag("route", id)
+                    .register(meterRegistry);
+            return counter;
+        });
+    }
+
+    private Timer timer(String name, String... tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public enum JwtOutcome {
+        VALID, EXPIRED, INVALID
+    }
+}
@@ -0,0 +1,61 @@
+package com.loopify.apigateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory token buckets, lock-free on the request path.
+ * <p>
+ * Each namespace owns a fixed array of atomics and keys are hashed onto it, so memory stays bounded no matter
+ * how many users show up. Two keys sharing a stripe share a bucket, which can only make the limit stricter.
+ * Each slot stores the bucket state as a single "theoretical arrival time" (GCRA), updated with one CAS.
+ */
+public class LocalRateLimiter implements RateLimiter {
+
+    private static final Mono<Boolean> ADMITTED = Mono.just(true);
+    private static final Mono<Boolean> REJECTED = Mono.just(false);
+
+    private final int stripes;
+    private final long origin = System.nanoTime();
+    private final Map<String, AtomicLongArray> namespaces = new ConcurrentHashMap<>();
+
+    public LocalRateLimiter(int stripes) {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Rate limit stripes must be a power of two: " + stripes);
+        }
+        this.stripes = stripes;
+    }
+
+    @Override
+    public Mono<Boolean> tryAcquire(String namespace, String key, RateLimitProperties.BucketSpec spec) {
+        return acquire(namespace, key, spec) ? ADMITTED : REJECTED;
+    }
+
+    public boolean acquire(String namespace, String key, RateLimitProperties.BucketSpec spec) {
+        AtomicLongArray tats = namespaces.computeIfAbsent(namespace, n -> new AtomicLongArray(stripes));
+        int slot = spread(key.hashCode()) & (stripes - 1);
+
+        long interval = (long) (1_000_000_000L / spec.getPermitsPerSecond());
+        long tolerance = interval * Math.max(spec.getBurst(), 1);
+        // Relative to construction so the zero-initialised slots always mean "bucket full"
+        long now = System.nanoTime() - origin;
+
+        while (true) {
+            long tat = tats.get(slot);
+            long newTat = Math.max(tat, now) + interval;
+            if (newTat - now > tolerance) {
+                return false;
+            }
+            if (tats.compareAndSet(slot, tat, newTat)) {
+                return true;
+            }
+        }
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,44 @@
+package com.loopify.apigateway.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // LOCAL keeps buckets per gateway instance, REDIS shares them across replicas
+    private Mode mode = Mode.LOCAL;
+
+    // Per-user buckets of one route are hashed onto this many atomics (power of two)
+    private int stripes = 4096;
+
+    // REDIS mode: permits reserved per round trip and how long unused reserved permits stay valid
+    private int redisBatchSize = 10;
+    private Duration reservationTtl = Duration.ofSeconds(1);
+
+    // Keyed by gateway route id
+    private Map<String, RouteLimits> routes = new HashMap<>();
+
+    public enum Mode {
+        LOCAL, REDIS
+    }
+
+    @Data
+    public static class RouteLimits {
+        private BucketSpec perUser;
+        private BucketSpec perRoute;
+    }
+
+    @Data
+    public static class BucketSpec {
+        private double permitsPerSecond;
+        private long burst;
+    }
+}
@@ -0,0 +1,15 @@
+package com.loopify.apigateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+public interface RateLimiter {
+
+    /**
+     * Takes one permit from the bucket identified by {@code namespace} and {@code key}.
+     *
+     * @param namespace groups buckets that share a spec, e.g. {@code main-service:user}
+     * @param key       bucket within the namespace, e.g. the user id
+     * @return {@code true} when the request is admitted
+     */
+    Mono<Boolean> tryAcquire(String namespace, String key, RateLimitProperties.BucketSpec spec);
+}
@@ -0,0 +1,82 @@
+package com.loopify.apigateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets kept in Redis so limits hold across gateway replicas.
+ * <p>
+ * Each replica reserves a batch of permits per round trip and hands them out locally until they run out,
+ * so most requests never touch Redis. Unused permits are dropped after {@code reservation-ttl}, which bounds
+ * how far a replica can run ahead of the shared bucket. If Redis is unreachable the local limiter takes over.
+ */
+@Slf4j
+public class RedisRateLimiter implements RateLimiter {
+
+    private static final String KEY_PREFIX = "rate_limit:";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final LocalRateLimiter fallback;
+    private final RedisScript<Long> reserveScript =
+            RedisScript.of(new ClassPathResource("scripts/rate_limit_reserve.lua"), Long.class);
+    private final int batchSize;
+    private final Cache<String, AtomicLong> reservations;
+
+    public RedisRateLimiter(ReactiveStringRedisTemplate redisTemplate, LocalRateLimiter fallback,
+                            RateLimitProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.fallback = fallback;
+        this.batchSize = Math.max(properties.getRedisBatchSize(), 1);
+        this.reservations = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(properties.getReservationTtl())
+                .build();
+    }
+
+    @Override
+    public Mono<Boolean> tryAcquire(String namespace, String key, RateLimitProperties.BucketSpec spec) {
+        String bucketKey = KEY_PREFIX + namespace + ":" + key;
+        AtomicLong reserved = reservations.get(bucketKey, k -> new AtomicLong());
+        if (takeReserved(reserved)) {
+            return Mono.just(true);
+        }
+
+        List<String> args = List.of(
+                String.valueOf(spec.getPermitsPerSecond()),
+                String.valueOf(spec.getBurst()),
+                String.valueOf(Math.min(batchSize, Math.max(spec.getBurst(), 1))));
+        return redisTemplate.execute(reserveScript, List.of(bucketKey), args)
+                .next()
+                .map(granted -> {
+                    if (granted <= 0) {
+                        return false;
+                    }
+                    // Keep one permit for this request, the rest serve the next ones locally
+                    reserved.addAndGet(granted - 1);
+                    return true;
+                })
+                .onErrorResume(e -> {
+                    log.warn("Redis rate limiter unavailable, falling back to local buckets: {}", e.getMessage());
+                    return Mono.just(fallback.acquire(namespace, key, spec));
+                });
+    }
+
+    private static boolean takeReserved(AtomicLong reserved) {
+        long current;
+        do {
+            current = reserved.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!reserved.compareAndSet(current, current - 1));
+        return true;
+    }
+}
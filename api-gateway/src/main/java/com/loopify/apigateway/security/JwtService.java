@@ -1,57 +1,83 @@
 package com.loopify.apigateway.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
-import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
-import java.util.Date;
-import java.util.function.Function;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class JwtService {
 
+    private final MeterRegistry meterRegistry;
+
     @Value("${app.jwt.secret}")
     private String jwtSecret;
 
-    public String extractUsername(String token) {
-        try {
-            return extractClaim(token, Claims::getSubject);
-        } catch (JwtException | IllegalArgumentException e) {
-            log.warn("Failed to extract username from token: {}", e.getMessage());
-            return null;
-        }
-    }
+    @Value("${app.jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
+    private JwtParser jwtParser;
 
-    public boolean isTokenExpired(String token) {
-        try {
-            return extractExpiration(token).before(new Date());
-        } catch (JwtException | IllegalArgumentException e) {
-            log.warn("Could not determine expiration for token: {}", e.getMessage());
-            return true;
-        }
-    }
+    // token digest -> verified claims, each entry expires together with its token
+    private Cache<String, VerifiedToken> verifiedTokenCache;
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    @PostConstruct
+    void init() {
+        // Decode the secret and build the parser once, both are thread-safe and reusable
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(getSignInKey())
+                .build();
+        this.verifiedTokenCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokenCache, "verified-tokens");
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Verifies signature and expiration in a single parse and returns the verified claims.
+     * Tokens seen before are served from the cache without re-running the HMAC check.
+     *
+     * @throws ExpiredJwtException if the token is expired
+     * @throws JwtException if the token is malformed, unsigned or has no subject
+     * @throws IllegalArgumentException if the token is null or empty
+     */
+    public VerifiedToken validateToken(String token) {
+        String key = digest(token);
+        VerifiedToken cached = verifiedTokenCache.getIfPresent(key);
+        if (cached != null && !cached.isExpired()) {
+            return cached;
+        }
+
+        VerifiedToken verified = VerifiedToken.from(jwtParser.parseClaimsJws(token).getBody());
+        if (verified.subject() == null) {
+            throw new MalformedJwtException("JWT subject is missing");
+        }
+        // Tokens without exp cannot be bounded by the cache, so they are verified every time
+        if (verified.expiresAt() != null) {
+            verifiedTokenCache.put(key, verified);
+        }
+        return verified;
     }
 
     private SecretKey getSignInKey() {
@@ -59,28 +85,35 @@ public class JwtService {
         return Keys.hmacShaKeyFor(keyBytes);
     }
 
-    public boolean validateTokenStructureAndExpiration(String token) {
+    // Keyed by a digest so raw bearer tokens are never retained in memory
+    private static String digest(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("JWT string is empty or null");
+        }
         try {
-            Claims claims = extractAllClaims(token);
-            return claims.getSubject() != null;
-        } catch (ExpiredJwtException e) {
-            log.debug("Token is expired: {}", e.getMessage());
-            throw e;
-        } catch (SignatureException e) {
-            log.warn("Invalid JWT signature: {}", e.getMessage());
-            throw e;
-        } catch (MalformedJwtException e) {
-            log.warn("Malformed JWT: {}", e.getMessage());
-            throw e;
-        } catch (UnsupportedJwtException e) {
-            log.warn("Unsupported JWT: {}", e.getMessage());
-            throw e;
-        } catch (IllegalArgumentException e) {
-            log.warn("JWT claims string is empty or null: {}", e.getMessage());
-            throw e;
-        } catch (JwtException e){
-            log.error("Generic JWT exception during validation: {}", e.getMessage());
-            throw e;
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static class TokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long nanos = Duration.between(Instant.now(), value.expiresAt()).toNanos();
+            return Math.max(nanos, 0);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
         }
     }
 }
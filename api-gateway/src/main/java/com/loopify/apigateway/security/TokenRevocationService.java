@@ -0,0 +1,148 @@
+package com.loopify.apigateway.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Denylist of revoked access tokens (by jti) kept as a local Bloom filter.
+ * <p>
+ * main-service stores each revoked jti in Redis until the token expires and announces it on a channel. Here
+ * every announcement goes into the filter, so a token that was never revoked is rejected from the filter
+ * in a few hundred nanoseconds and only a filter hit costs a Redis lookup. The filter is rebuilt from a
+ * Redis SCAN every {@code rotation-interval}: the fresh generation replaces the older one, which drops
+ * expired entries and recovers announcements missed while the subscription was down.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TokenRevocationService {
+
+    // Must match main-service AccessTokenRevocationService
+    public static final String REVOKED_KEY_PREFIX = "jwt:revoked:";
+    public static final String REVOCATION_CHANNEL = "jwt:revoked";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ReactiveRedisMessageListenerContainer listenerContainer;
+
+    @Value("${app.jwt.revocation.expected-revocations:100000}")
+    private long expectedRevocations;
+
+    @Value("${app.jwt.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${app.jwt.revocation.rotation-interval:10m}")
+    private Duration rotationInterval;
+
+    // Two generations: lookups check both, announcements go into current (and pending while it is rebuilt)
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+    private volatile BloomFilter pending;
+
+    // Tokens confirmed revoked by Redis, so a client replaying one does not cost a round trip per request
+    private Cache<String, Boolean> confirmedRevoked;
+
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    @PostConstruct
+    void start() {
+        this.current = newFilter();
+        this.previous = newFilter();
+        this.confirmedRevoked = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(rotationInterval)
+                .build();
+
+        subscriptions.add(listenerContainer.receive(ChannelTopic.of(REVOCATION_CHANNEL))
+                .doOnNext(message -> add(message.getMessage()))
+                .doOnError(e -> log.warn("Revocation subscription lost, resubscribing: {}", e.getMessage()))
+                // Announcements missed meanwhile come back with the next rebuild
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe());
+        // First tick loads what was revoked before this gateway started
+        subscriptions.add(Flux.interval(Duration.ZERO, rotationInterval)
+                .concatMap(tick -> rotate())
+                .subscribe());
+    }
+
+    @PreDestroy
+    void stop() {
+        subscriptions.dispose();
+    }
+
+    /**
+     * Local check only. False means the token is definitely not revoked.
+     */
+    public boolean mightBeRevoked(String tokenId) {
+        return current.mightContain(tokenId) || previous.mightContain(tokenId);
+    }
+
+    /**
+     * Authoritative check for tokens that hit the filter. Fails closed: if Redis cannot be asked,
+     * a token that hit the filter is treated as revoked.
+     */
+    public Mono<Boolean> isRevoked(String tokenId) {
+        if (confirmedRevoked.getIfPresent(tokenId) != null) {
+            return Mono.just(true);
+        }
+        return redisTemplate.hasKey(REVOKED_KEY_PREFIX + tokenId)
+                .doOnNext(revoked -> {
+                    if (revoked) {
+                        confirmedRevoked.put(tokenId, Boolean.TRUE);
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.warn("Revocation lookup failed, rejecting token that hit the filter: {}", e.getMessage());
+                    return Mono.just(true);
+                });
+    }
+
+    private void add(String tokenId) {
+        current.put(tokenId);
+        BloomFilter rebuilding = pending;
+        if (rebuilding != null) {
+            rebuilding.put(tokenId);
+        }
+    }
+
+    private Mono<Void> rotate() {
+        BloomFilter next = newFilter();
+        pending = next;
+        ScanOptions options = ScanOptions.scanOptions().match(REVOKED_KEY_PREFIX + "*").count(1000).build();
+        return redisTemplate.scan(options)
+                .doOnNext(key -> next.put(key.substring(REVOKED_KEY_PREFIX.length())))
+                .count()
+                .doOnNext(loaded -> {
+                    previous = current;
+                    current = next;
+                    log.debug("Revocation filter rotated, {} revoked tokens loaded", loaded);
+                })
+                .then()
+                .onErrorResume(e -> {
+                    // Keep both generations, nothing is lost, next tick retries
+                    log.warn("Revocation filter rebuild failed: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .doFinally(signal -> pending = null);
+    }
+
+    private BloomFilter newFilter() {
+        return new BloomFilter(expectedRevocations, falsePositiveRate);
+    }
+}
@@ -0,0 +1,29 @@
+package com.loopify.apigateway.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+
+/**
+ * Immutable view of a JWT whose signature and expiration have already been checked.
+ * Instances are shared through the verified-token cache, so they must never expose mutable claims.
+ */
+public record VerifiedToken(String subject, Long userId, String tokenId, Instant expiresAt) {
+
+    // Must match the claim written by main-service JwtService
+    static final String USER_ID_CLAIM = "uid";
+
+    static VerifiedToken from(Claims claims) {
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        return new VerifiedToken(
+                claims.getSubject(),
+                userId != null ? userId.longValue() : null,
+                claims.getId(),
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null
+        );
+    }
+
+    public boolean isExpired() {
+        return expiresAt != null && !expiresAt.isAfter(Instant.now());
+    }
+}
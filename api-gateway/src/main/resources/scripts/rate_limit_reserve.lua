@@ -0,0 +1,24 @@
+-- Token bucket shared by all gateway replicas.
+-- Grants up to ARGV[3] permits at once so a replica can serve several requests per round trip.
+-- KEYS[1]: bucket hash
+-- ARGV[1]: permits per second, ARGV[2]: burst, ARGV[3]: permits requested
+-- Returns the number of permits granted (0 when the bucket is empty).
+local rate = tonumber(ARGV[1])
+local burst = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(bucket[1]) or burst
+local ts = tonumber(bucket[2]) or now
+
+tokens = math.min(burst, tokens + math.max(0, now - ts) * rate / 1000)
+local granted = math.min(requested, math.floor(tokens))
+tokens = tokens - granted
+
+redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+-- A full refill plus a margin, idle buckets then disappear on their own
+redis.call('PEXPIRE', KEYS[1], math.ceil(burst / rate * 1000) + 1000)
+return granted
@@ -0,0 +1,69 @@
+package com.loopify.apigateway.benchmark;
+
+import com.loopify.apigateway.filter.SkipPathMatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the compiled skip-path trie with the previous per-request stream/replace implementation.
+ * Not part of the test run; start it through {@link #main(String[])} after {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SkipPathMatcherBenchmark {
+
+    private static final List<String> SKIP_PATHS = List.of(
+            "/api/v1/auth/request-code",
+            "/api/v1/auth/verify-code",
+            "/api/v1/auth/google/callback",
+            "/api/v1/auth/refresh",
+            "/api/v1/auth/logout",
+            "/actuator/health/**"
+    );
+
+    private static final String[] REQUEST_PATHS = {
+            "/api/v1/users/42",
+            "/api/v1/follow/42/followers",
+            "/api/v1/auth/refresh",
+            "/actuator/health/liveness",
+            "/api/v1/notifications/unread"
+    };
+
+    private SkipPathMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        matcher = SkipPathMatcher.compile(SKIP_PATHS);
+    }
+
+    @Benchmark
+    public void legacyStreamReplace(Blackhole blackhole) {
+        for (String path : REQUEST_PATHS) {
+            blackhole.consume(SKIP_PATHS.stream().anyMatch(p -> path.startsWith(p.replace("/**", ""))));
+        }
+    }
+
+    @Benchmark
+    public void compiledTrie(Blackhole blackhole) {
+        for (String path : REQUEST_PATHS) {
+            blackhole.consume(matcher.matches(path));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SkipPathMatcherBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,74 @@
+package com.loopify.apigateway.concurrency;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        ConcurrencyProperties.RouteSettings settings = new ConcurrencyProperties.RouteSettings();
+        settings.setMinimumCalls(2);
+        settings.setFailureRateThreshold(0.5);
+        settings.setOpenDuration(Duration.ZERO);
+        settings.setHalfOpenProbes(2);
+        breaker = new CircuitBreaker(settings);
+    }
+
+    @Test
+    void cancelledHalfOpenProbeHandsItsSlotBack() {
+        open();
+        CircuitBreaker.Permit first = breaker.tryAcquire();
+        CircuitBreaker.Permit second = breaker.tryAcquire();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isNull();
+
+        breaker.onCancel(first);
+        CircuitBreaker.Permit replacement = breaker.tryAcquire();
+        assertThat(replacement).isNotNull();
+
+        breaker.onSuccess(second);
+        breaker.onSuccess(replacement);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void callAdmittedWhileClosedDoesNotCountAsProbe() {
+        CircuitBreaker.Permit closedCall = breaker.tryAcquire();
+        open();
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        breaker.onSuccess(closedCall);
+        breaker.onSuccess(probe);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        breaker.onSuccess(breaker.tryAcquire());
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void lateFailureFromOldGenerationDoesNotReopen() {
+        CircuitBreaker.Permit closedCall = breaker.tryAcquire();
+        open();
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+
+        breaker.onFailure(closedCall);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        breaker.onFailure(probe);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private void open() {
+        breaker.onFailure(breaker.tryAcquire());
+        breaker.onFailure(breaker.tryAcquire());
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+}
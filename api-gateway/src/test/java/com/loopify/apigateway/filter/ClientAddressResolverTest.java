@@ -0,0 +1,44 @@
+package com.loopify.apigateway.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.net.InetSocketAddress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientAddressResolverTest {
+
+    private final ClientAddressResolver resolver = new ClientAddressResolver(1);
+
+    @Test
+    void takesTheEntryAppendedByTheTrustedProxy() {
+        // nginx appends the address it was called from to whatever the client sent
+        MockServerWebExchange exchange = exchange("203.0.113.9, 198.51.100.7");
+
+        assertThat(resolver.resolve(exchange)).isEqualTo("198.51.100.7");
+    }
+
+    @Test
+    void ignoresEntriesSpoofedByTheClient() {
+        ClientAddressResolver twoProxies = new ClientAddressResolver(2);
+        MockServerWebExchange exchange = exchange("1.1.1.1, 198.51.100.7, 10.0.0.2");
+
+        assertThat(twoProxies.resolve(exchange)).isEqualTo("198.51.100.7");
+    }
+
+    @Test
+    void fallsBackToTheSocketPeerWithoutForwardedFor() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/auth/refresh")
+                .remoteAddress(new InetSocketAddress("10.0.0.5", 40000)));
+
+        assertThat(resolver.resolve(exchange)).isEqualTo("10.0.0.5");
+    }
+
+    private static MockServerWebExchange exchange(String forwardedFor) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/auth/refresh")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 40000))
+                .header("X-Forwarded-For", forwardedFor));
+    }
+}
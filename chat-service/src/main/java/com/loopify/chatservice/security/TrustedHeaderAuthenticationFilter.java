@@ -24,8 +24,9 @@ import java.io.IOException;
 public class TrustedHeaderAuthenticationFilter extends OncePerRequestFilter {
     private final CustomUserDetailsService customUserDetailsService;
 
-    // Match header name used in Gateway AuthFilter
+    // Match header names used in Gateway AuthFilter
     private static final String USER_EMAIL_HEADER = "X-User-Email";
+    private static final String USER_ID_HEADER = "X-User-Id";
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
@@ -49,7 +50,7 @@ public class TrustedHeaderAuthenticationFilter extends OncePerRequestFilter {
         log.debug("Attempting authentication based on header '{}': {}", USER_EMAIL_HEADER, userEmail);
 
         try {
-            UserDetails userDetails = customUserDetailsService.loadUserByUsername(userEmail);
+            UserDetails userDetails = resolveUserDetails(userEmail, request.getHeader(USER_ID_HEADER));
 
             UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                     userDetails, null, userDetails.getAuthorities());
@@ -70,4 +71,18 @@ public class TrustedHeaderAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Tokens issued by main-service carry the user id, so the database is only hit for older tokens
+    private UserDetails resolveUserDetails(String userEmail, String userIdHeader) {
+        if (StringUtils.hasText(userIdHeader)) {
+            try {
+                return CustomUserDetail.builder()
+                        .id(Long.parseLong(userIdHeader))
+                        .email(userEmail)
+                        .build();
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring malformed trusted header '{}': {}", USER_ID_HEADER, userIdHeader);
+            }
+        }
+        return customUserDetailsService.loadUserByUsername(userEmail);
+    }
 }
@@ -26,7 +26,8 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
     private final UserPresenceService userPresenceService;
     private final ObjectMapper objectMapper;
 
-    @Value("${spring.application.name}:${random.uuid}") // Unique ID for this instance
+    // Unique ID for this instance, must match the gateway's instance-id metadata for presence-aware routing
+    @Value("${app.instance-id:${spring.application.name}:${random.uuid}}")
     private String instanceId;
 
     @Value("${app.websocket.heartbeat-interval-ms}")
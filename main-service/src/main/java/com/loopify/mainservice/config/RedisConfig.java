@@ -0,0 +1,24 @@
+package com.loopify.mainservice.config;
+
+import com.loopify.mainservice.graph.FollowGraphIndex;
+import com.loopify.mainservice.security.UserDetailsCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+public class RedisConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       UserDetailsCache userDetailsCache,
+                                                                       FollowGraphIndex followGraphIndex) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(userDetailsCache, new ChannelTopic(UserDetailsCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(followGraphIndex, new ChannelTopic(FollowGraphIndex.CHANGES_CHANNEL));
+        return container;
+    }
+}
@@ -4,7 +4,7 @@ import com.loopify.mainservice.dto.request.user.*;
 import com.loopify.mainservice.dto.response.user.AuthResponse;
 import com.loopify.mainservice.dto.response.user.MessageResponse;
 import com.loopify.mainservice.dto.response.user.UserTokenDto;
-import com.loopify.mainservice.security.RefreshTokenService;
+import com.loopify.mainservice.exception.TooManyRequestsException;
 import com.loopify.mainservice.service.user.AuthService;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,6 +12,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,14 +25,18 @@ import org.springframework.web.bind.annotation.*;
 @Slf4j
 public class AuthController {
     private final AuthService authService;
-    private final RefreshTokenService refreshTokenService;
+
+    @Value("${app.jwt.refresh-token-expiration-ms}")
+    private long refreshTokenDurationMs;
 
     private static final String REFRESH_TOKEN_COOKIE_NAME = "refreshToken";
     private static final String REFRESH_TOKEN_PATH = "/api/v1/auth";
+    private static final String CLIENT_IP_HEADER = "X-Client-Ip";
 
     @PostMapping("/request-code")
-    public ResponseEntity<MessageResponse> requestCode(@Valid @RequestBody RequestCodeRequest request) {
-        authService.requestEmailCode(request.email());
+    public ResponseEntity<MessageResponse> requestCode(@Valid @RequestBody RequestCodeRequest request,
+                                                       HttpServletRequest httpRequest) {
+        authService.requestEmailCode(request.email(), clientIp(httpRequest));
         return ResponseEntity.ok(new MessageResponse("Verification code sent successfully."));
     }
 
@@ -60,19 +65,30 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         AuthResponse authResponse = authService.refreshToken(refreshToken);
-        addRefreshTokenCookie(response, refreshToken);
+        // Refresh tokens are single-use, hand out the rotated one
+        addRefreshTokenCookie(response, authResponse.refreshToken());
         return ResponseEntity.ok(new UserTokenDto(authResponse.accessToken(), authResponse.user()));
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<MessageResponse> logout(@CookieValue(value = REFRESH_TOKEN_COOKIE_NAME, required = false) String refreshToken, HttpServletResponse response) {
-        // Assumes frontend sends the refresh token to invalidate
-        authService.logout(refreshToken);
+    public ResponseEntity<MessageResponse> logout(@CookieValue(value = REFRESH_TOKEN_COOKIE_NAME, required = false) String refreshToken,
+                                                  @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                                  HttpServletResponse response) {
+        // Assumes frontend sends the refresh token to invalidate, and the access token to revoke it right away
+        String accessToken = authorization != null && authorization.startsWith("Bearer ") ? authorization.substring(7) : null;
+        authService.logout(refreshToken, accessToken);
         // Clear the refresh token cookie
         deleteRefreshTokenCookie(response);
         return ResponseEntity.ok(new MessageResponse("Logout successful."));
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<MessageResponse> handleTooManyRequests(TooManyRequestsException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new MessageResponse(ex.getMessage()));
+    }
+
     // --- Exception Handler (Recommended) ---
     @ExceptionHandler(RuntimeException.class) // Catch specific exceptions ideally
     @ResponseStatus(HttpStatus.BAD_REQUEST) // Or appropriate status
@@ -87,7 +103,7 @@ public class AuthController {
         refreshTokenCookie.setHttpOnly(true);
 //        refreshTokenCookie.setSecure(true); // For HTTPS environments
         refreshTokenCookie.setSecure(false); // for local environments
-        refreshTokenCookie.setMaxAge((int) (refreshTokenService.getRefreshTokenDurationMs() / 1000));
+        refreshTokenCookie.setMaxAge((int) (refreshTokenDurationMs / 1000));
         refreshTokenCookie.setPath(REFRESH_TOKEN_PATH);
         refreshTokenCookie.setAttribute("SameSite", "Strict"); // Protect against CSRF
         response.addCookie(refreshTokenCookie);
@@ -106,6 +122,17 @@ public class AuthController {
         response.addCookie(cookie);
     }
 
+    // The gateway resolves the client from X-Forwarded-For (app.client-ip.trusted-proxies hops from the right,
+    // nginx by default) and forwards it as X-Client-Ip, dropping any value the client sent. The last
+    // X-Forwarded-For entry here would be nginx itself, so every caller would share one throttle bucket.
+    private String clientIp(HttpServletRequest request) {
+        String clientIp = request.getHeader(CLIENT_IP_HEADER);
+        if (clientIp != null && !clientIp.isBlank()) {
+            return clientIp.trim();
+        }
+        return request.getRemoteAddr();
+    }
+
     private String extractRefreshTokenFromCookies(HttpServletRequest request) {
         Cookie[] cookies = request.getCookies();
         if (cookies != null) {
@@ -1,16 +1,23 @@
 package com.loopify.mainservice.controller.user;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.loopify.mainservice.dto.request.user.BulkFollowRequest;
+import com.loopify.mainservice.dto.request.user.FollowStatusRequest;
+import com.loopify.mainservice.dto.response.CursorPage;
+import com.loopify.mainservice.dto.response.user.FollowSuggestionsResponse;
+import com.loopify.mainservice.dto.user.FollowOutcome;
 import com.loopify.mainservice.dto.user.UserFollowDto;
 import com.loopify.mainservice.exception.AppException;
 import com.loopify.mainservice.security.CurrentUser;
 import com.loopify.mainservice.service.user.FollowService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -18,12 +25,20 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/v1/follow")
 @Slf4j
 @RequiredArgsConstructor
 public class FollowController {
+    // Browsers revalidate (cheap with the gateway's ETag), the gateway cache may keep the answer briefly
+    private static final CacheControl COUNT_CACHE_CONTROL = CacheControl.maxAge(0, TimeUnit.SECONDS).sMaxAge(10, TimeUnit.SECONDS);
+    private static final CacheControl STATUS_CACHE_CONTROL = CacheControl.maxAge(0, TimeUnit.SECONDS).sMaxAge(5, TimeUnit.SECONDS);
+
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final int MAX_SUGGESTIONS = 50;
+
     private final FollowService followService;
 
     @PostMapping("/{userId}/follow")
@@ -75,6 +90,26 @@ public class FollowController {
 
     }
 
+    @PostMapping("/bulk/follow")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> followUsers(@Valid @RequestBody BulkFollowRequest request, @CurrentUser Long currentUserId) {
+        try {
+            Map<Long, FollowOutcome> results = followService.followUsers(currentUserId, request.userIds());
+            return ResponseEntity.ok(Map.of("results", results));
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", e.getMessage()));
+        } catch (AppException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/bulk/unfollow")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> unfollowUsers(@Valid @RequestBody BulkFollowRequest request, @CurrentUser Long currentUserId) {
+        Map<Long, FollowOutcome> results = followService.unfollowUsers(currentUserId, request.userIds());
+        return ResponseEntity.ok(Map.of("results", results));
+    }
+
     @GetMapping("/{userId}/followers")
     public ResponseEntity<Page<UserFollowDto>> getFollowers(
             @PathVariable Long userId,
@@ -91,16 +126,43 @@ public class FollowController {
         return ResponseEntity.ok(following);
     }
 
+    // Cursor variants for infinite scrolling: every page costs the same and no total is counted
+    @GetMapping("/{userId}/followers/cursor")
+    public ResponseEntity<?> getFollowersByCursor(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            CursorPage<UserFollowDto> followers = followService.getFollowers(userId, cursor, clampPageSize(size));
+            return ResponseEntity.ok(followers);
+        } catch (AppException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{userId}/following/cursor")
+    public ResponseEntity<?> getFollowingByCursor(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            CursorPage<UserFollowDto> following = followService.getFollowing(userId, cursor, clampPageSize(size));
+            return ResponseEntity.ok(following);
+        } catch (AppException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/{userId}/followers/count")
     public ResponseEntity<Map<String, Long>> getFollowersCount(@PathVariable Long userId) {
         long count = followService.countFollowers(userId);
-        return ResponseEntity.ok(Map.of("count", count));
+        return ResponseEntity.ok().cacheControl(COUNT_CACHE_CONTROL).body(Map.of("count", count));
     }
 
     @GetMapping("/{userId}/following/count")
     public ResponseEntity<Map<String, Long>> getFollowingCount(@PathVariable Long userId) {
         long count = followService.countFollowing(userId);
-        return ResponseEntity.ok(Map.of("count", count));
+        return ResponseEntity.ok().cacheControl(COUNT_CACHE_CONTROL).body(Map.of("count", count));
     }
 
     @GetMapping("/{userId1}/mutual-followers/{userId2}")
@@ -111,11 +173,61 @@ public class FollowController {
         return ResponseEntity.ok(mutualFollowers);
     }
 
+    @GetMapping("/{userId1}/mutual-followers/{userId2}/page")
+    public ResponseEntity<?> getMutualFollowersPage(
+            @PathVariable Long userId1,
+            @PathVariable Long userId2,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            CursorPage<Long> mutualFollowers = followService.getMutualFollowers(userId1, userId2, cursor, clampPageSize(size));
+            return ResponseEntity.ok(mutualFollowers);
+        } catch (AppException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{userId1}/mutual-followers/{userId2}/count")
+    public ResponseEntity<Map<String, Long>> getMutualFollowersCount(
+            @PathVariable Long userId1,
+            @PathVariable Long userId2) {
+        long count = followService.countMutualFollowers(userId1, userId2);
+        return ResponseEntity.ok().cacheControl(COUNT_CACHE_CONTROL).body(Map.of("count", count));
+    }
+
     @GetMapping("/{userId}/is-following/{targetUserId}")
     public ResponseEntity<Map<String, Boolean>> checkFollowStatus(
             @PathVariable Long userId,
             @PathVariable Long targetUserId) {
         boolean isFollowing = followService.isFollowing(userId, targetUserId);
-        return ResponseEntity.ok(Map.of("following", isFollowing));
+        return ResponseEntity.ok().cacheControl(STATUS_CACHE_CONTROL).body(Map.of("following", isFollowing));
+    }
+
+    // One request for a whole rendered list instead of one per user
+    @PostMapping("/{userId}/is-following")
+    public ResponseEntity<Map<String, Map<Long, Boolean>>> checkFollowStatuses(
+            @PathVariable Long userId,
+            @Valid @RequestBody FollowStatusRequest request) {
+        Map<Long, Boolean> statuses = followService.isFollowing(userId, request.userIds());
+        return ResponseEntity.ok(Map.of("following", statuses));
+    }
+
+    @GetMapping("/suggestions")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getSuggestions(@CurrentUser Long currentUserId,
+                                            @RequestParam(defaultValue = "20") int limit) {
+        FollowSuggestionsResponse suggestions = followService.getSuggestions(currentUserId,
+                Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
+        if (suggestions == null) {
+            // The graph index is still loading after a restart
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "30")
+                    .body(Map.of("error", "Suggestions are temporarily unavailable"));
+        }
+        return ResponseEntity.ok(suggestions);
+    }
+
+    private static int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
     }
 }
@@ -7,6 +7,7 @@ import com.loopify.mainservice.repository.user.UserRepository;
 import com.loopify.mainservice.service.user.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -14,6 +15,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.security.Principal;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/v1/users")
@@ -24,11 +26,14 @@ public class UserController {
     private final UserService userService;
     private final UserRepository userRepository;
 
+    // Public profile, the gateway response cache may serve it for a short while
+    private static final CacheControl PROFILE_CACHE_CONTROL = CacheControl.maxAge(0, TimeUnit.SECONDS).sMaxAge(30, TimeUnit.SECONDS);
+
     @GetMapping("/{userId}")
     public ResponseEntity<?> getUser(@PathVariable Long userId) {
         try {
             UserDto user = userService.getUserById(userId);
-            return ResponseEntity.ok(user);
+            return ResponseEntity.ok().cacheControl(PROFILE_CACHE_CONTROL).body(user);
         } catch (AppException e) {
             log.error(e.getMessage());
             return ResponseEntity.internalServerError().body(e.getMessage());
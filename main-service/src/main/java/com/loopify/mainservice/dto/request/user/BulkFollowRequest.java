@@ -0,0 +1,10 @@
+package com.loopify.mainservice.dto.request.user;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BulkFollowRequest(@NotEmpty @Size(max = 50) List<@NotNull Long> userIds) {
+}
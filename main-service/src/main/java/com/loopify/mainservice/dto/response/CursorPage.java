@@ -0,0 +1,9 @@
+package com.loopify.mainservice.dto.response;
+
+import java.util.List;
+
+/**
+ * One page of a cursor-paginated list. {@code nextCursor} is null on the last page.
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,11 @@
+package com.loopify.mainservice.dto.response.user;
+
+import com.loopify.mainservice.dto.user.FollowSuggestionDto;
+
+import java.util.List;
+
+/**
+ * @param partial true if the time budget ran out and only part of the network was scanned
+ */
+public record FollowSuggestionsResponse(List<FollowSuggestionDto> suggestions, boolean partial) {
+}
@@ -0,0 +1,4 @@
+package com.loopify.mainservice.dto.user;
+
+public record FollowCounts(long followers, long following) {
+}
@@ -0,0 +1,9 @@
+package com.loopify.mainservice.dto.user;
+
+import java.time.LocalDateTime;
+
+/**
+ * The other side of a follow and when it was made.
+ */
+public record FollowEdge(Long userId, LocalDateTime createdAt) {
+}
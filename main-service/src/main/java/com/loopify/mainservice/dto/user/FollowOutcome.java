@@ -0,0 +1,13 @@
+package com.loopify.mainservice.dto.user;
+
+/**
+ * Per-target result of a bulk follow or unfollow.
+ */
+public enum FollowOutcome {
+    FOLLOWED,
+    ALREADY_FOLLOWING,
+    UNFOLLOWED,
+    NOT_FOLLOWING,
+    USER_NOT_FOUND,
+    SELF
+}
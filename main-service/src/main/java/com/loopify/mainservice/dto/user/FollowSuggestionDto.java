@@ -0,0 +1,7 @@
+package com.loopify.mainservice.dto.user;
+
+/**
+ * A user the caller doesn't follow yet, with how many of the caller's followed users follow them.
+ */
+public record FollowSuggestionDto(Long userId, String nickname, String avatarUrl, int sharedConnections) {
+}
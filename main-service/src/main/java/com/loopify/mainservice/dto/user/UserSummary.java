@@ -0,0 +1,4 @@
+package com.loopify.mainservice.dto.user;
+
+public record UserSummary(Long id, String nickname, String avatarUrl) {
+}
@@ -0,0 +1,188 @@
+package com.loopify.mainservice.graph;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Immutable adjacency lists in compact form: per source node its ascending neighbor ids, stored as
+ * varint-encoded gaps. Typical follow lists take 2-3 bytes per edge instead of 8 (plus object overhead).
+ * <p>
+ * Source ids are kept in a sorted {@code long[]} with an {@code int[]} of start offsets into the edge
+ * data, so a lookup is a binary search followed by a sequential decode. The edge data is a
+ * {@link ByteBuffer}, which may be a heap buffer or a file mapping.
+ */
+public final class CompressedAdjacency {
+
+    private final long[] nodes;
+    // nodes.length + 1 entries, node i's edges are data[offsets[i], offsets[i + 1])
+    private final int[] offsets;
+    private final ByteBuffer data;
+    private final long edgeCount;
+
+    CompressedAdjacency(long[] nodes, int[] offsets, ByteBuffer data, long edgeCount) {
+        this.nodes = nodes;
+        this.offsets = offsets;
+        this.data = data;
+        this.edgeCount = edgeCount;
+    }
+
+    public static CompressedAdjacency empty() {
+        return new CompressedAdjacency(new long[0], new int[1], ByteBuffer.allocate(0), 0);
+    }
+
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    public long edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Heap and mapped bytes held by this structure.
+     */
+    public long sizeInBytes() {
+        return nodes.length * 8L + offsets.length * 4L + data.capacity();
+    }
+
+    long nodeAt(int index) {
+        return nodes[index];
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    ByteBuffer data() {
+        return data;
+    }
+
+    /**
+     * Neighbors of the node in ascending order, empty if it has none.
+     */
+    public long[] neighbors(long node) {
+        int index = Arrays.binarySearch(nodes, node);
+        return index < 0 ? new long[0] : neighborsAt(index);
+    }
+
+    long[] neighborsAt(int index) {
+        LongArrayBuilder result = new LongArrayBuilder(offsets[index + 1] - offsets[index]);
+        decode(index, Integer.MAX_VALUE, result::add);
+        return result.toArray();
+    }
+
+    /**
+     * Passes up to {@code limit} neighbors of the node to the consumer in ascending order.
+     */
+    public void forEachNeighbor(long node, int limit, LongConsumer consumer) {
+        int index = Arrays.binarySearch(nodes, node);
+        if (index >= 0) {
+            decode(index, limit, consumer);
+        }
+    }
+
+    private void decode(int index, int limit, LongConsumer consumer) {
+        int position = offsets[index];
+        int end = offsets[index + 1];
+        long value = 0;
+        int emitted = 0;
+        while (position < end && emitted < limit) {
+            long gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data.get(position++);
+                gap |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            value += gap;
+            consumer.accept(value);
+            emitted++;
+        }
+    }
+
+    /**
+     * Builds an adjacency from edges added in ascending (source, target) order, the order of the
+     * {@code user_follows} primary key. Repeated edges are ignored.
+     */
+    public static final class Builder {
+
+        private final LongArrayBuilder nodes;
+        private int[] offsets;
+        private byte[] data;
+        private int dataSize;
+        private long edgeCount;
+
+        private long currentNode;
+        private long lastTarget;
+        private boolean hasNode;
+
+        public Builder(int expectedNodes, long expectedEdges) {
+            this.nodes = new LongArrayBuilder(expectedNodes);
+            this.offsets = new int[Math.max(expectedNodes, 16) + 1];
+            this.data = new byte[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(expectedEdges, 16) * 3)];
+        }
+
+        public void add(long source, long target) {
+            if (!hasNode || source != currentNode) {
+                if (hasNode && source < currentNode) {
+                    throw new IllegalArgumentException("Edges must be added in source order: " + source + " after " + currentNode);
+                }
+                startNode(source);
+                writeVarint(target);
+            } else if (target > lastTarget) {
+                writeVarint(target - lastTarget);
+            } else if (target == lastTarget) {
+                return;
+            } else {
+                throw new IllegalArgumentException("Targets of " + source + " must be ascending: " + target + " after " + lastTarget);
+            }
+            lastTarget = target;
+            edgeCount++;
+        }
+
+        /**
+         * Adds all targets of one source, which must be ascending and greater than the previous source.
+         */
+        public void addAll(long source, long[] targets) {
+            for (long target : targets) {
+                add(source, target);
+            }
+        }
+
+        public CompressedAdjacency build() {
+            int count = nodes.size();
+            int[] finalOffsets = Arrays.copyOf(offsets, count + 1);
+            finalOffsets[count] = dataSize;
+            return new CompressedAdjacency(nodes.toArray(), finalOffsets,
+                    ByteBuffer.wrap(Arrays.copyOf(data, dataSize)), edgeCount);
+        }
+
+        private void startNode(long source) {
+            int index = nodes.size();
+            if (index + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length + (offsets.length >> 1));
+            }
+            offsets[index] = dataSize;
+            nodes.add(source);
+            currentNode = source;
+            hasNode = true;
+        }
+
+        private void writeVarint(long value) {
+            if (dataSize + 10 > data.length) {
+                long grown = data.length + ((long) data.length >> 1) + 16;
+                if (grown > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Adjacency data exceeds 2 GB");
+                }
+                data = Arrays.copyOf(data, (int) grown);
+            }
+            while ((value & ~0x7FL) != 0) {
+                data[dataSize++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[dataSize++] = (byte) value;
+        }
+    }
+}
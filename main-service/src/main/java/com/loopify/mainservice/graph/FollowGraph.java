@@ -0,0 +1,144 @@
+package com.loopify.mainservice.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Who-follows-whom (follower -> followed users) on top of a {@link CompressedAdjacency}.
+ * <p>
+ * Changes since the compressed base was built live in an overlay holding the full, updated following list
+ * of each changed user; {@link #compact()} folds the overlay into a new base. Reads are lock-free, changes
+ * and compaction are serialized.
+ */
+public final class FollowGraph {
+
+    private record State(CompressedAdjacency base, ConcurrentHashMap<Long, long[]> overlay, AtomicLong edgeDelta) {
+    }
+
+    private volatile State state;
+
+    public FollowGraph(CompressedAdjacency base) {
+        this.state = new State(base, new ConcurrentHashMap<>(), new AtomicLong());
+    }
+
+    /**
+     * Users the given user follows, ascending. The array must not be modified.
+     */
+    public long[] following(long userId) {
+        State current = state;
+        long[] changed = current.overlay().get(userId);
+        return changed != null ? changed : current.base().neighbors(userId);
+    }
+
+    /**
+     * Passes up to {@code limit} followed users to the consumer, ascending, without materializing the list.
+     */
+    public void forEachFollowing(long userId, int limit, LongConsumer consumer) {
+        State current = state;
+        long[] changed = current.overlay().get(userId);
+        if (changed == null) {
+            current.base().forEachNeighbor(userId, limit, consumer);
+            return;
+        }
+        int end = Math.min(limit, changed.length);
+        for (int i = 0; i < end; i++) {
+            consumer.accept(changed[i]);
+        }
+    }
+
+    /**
+     * Applies a follow or unfollow. Idempotent, so replaying a change is harmless.
+     *
+     * @return whether the graph changed
+     */
+    public synchronized boolean apply(long followerId, long followingId, boolean followed) {
+        State current = state;
+        long[] list = following(followerId);
+        int index = Arrays.binarySearch(list, followingId);
+        long[] updated;
+        if (followed) {
+            if (index >= 0) {
+                return false;
+            }
+            int insertAt = -index - 1;
+            updated = new long[list.length + 1];
+            System.arraycopy(list, 0, updated, 0, insertAt);
+            updated[insertAt] = followingId;
+            System.arraycopy(list, insertAt, updated, insertAt + 1, list.length - insertAt);
+        } else {
+            if (index < 0) {
+                return false;
+            }
+            updated = new long[list.length - 1];
+            System.arraycopy(list, 0, updated, 0, index);
+            System.arraycopy(list, index + 1, updated, index, list.length - index - 1);
+        }
+        current.overlay().put(followerId, updated);
+        current.edgeDelta().addAndGet(followed ? 1 : -1);
+        return true;
+    }
+
+    /**
+     * Rebuilds the compressed base with the overlay merged in. Readers keep using the old state until the
+     * new one is complete.
+     */
+    public synchronized void compact() {
+        State current = state;
+        if (current.overlay().isEmpty()) {
+            return;
+        }
+        state = new State(merge(current.base(), current.overlay()), new ConcurrentHashMap<>(), new AtomicLong());
+    }
+
+    /**
+     * The base with the overlay merged in, without replacing the current state. Used for snapshots.
+     */
+    public synchronized CompressedAdjacency merged() {
+        State current = state;
+        return current.overlay().isEmpty() ? current.base() : merge(current.base(), current.overlay());
+    }
+
+    private static CompressedAdjacency merge(CompressedAdjacency base, ConcurrentHashMap<Long, long[]> overlay) {
+        long[] changedUsers = overlay.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        CompressedAdjacency.Builder builder = new CompressedAdjacency.Builder(
+                base.nodeCount() + changedUsers.length, base.edgeCount() + changedUsers.length);
+        int baseIndex = 0;
+        int changedIndex = 0;
+        while (baseIndex < base.nodeCount() || changedIndex < changedUsers.length) {
+            long baseNode = baseIndex < base.nodeCount() ? base.nodeAt(baseIndex) : Long.MAX_VALUE;
+            long changedNode = changedIndex < changedUsers.length ? changedUsers[changedIndex] : Long.MAX_VALUE;
+            if (changedNode <= baseNode) {
+                builder.addAll(changedNode, overlay.get(changedNode));
+                changedIndex++;
+                if (changedNode == baseNode) {
+                    baseIndex++;
+                }
+            } else {
+                builder.addAll(baseNode, base.neighborsAt(baseIndex));
+                baseIndex++;
+            }
+        }
+        return builder.build();
+    }
+
+    public long edgeCount() {
+        State current = state;
+        return current.base().edgeCount() + current.edgeDelta().get();
+    }
+
+    public int overlaySize() {
+        return state.overlay().size();
+    }
+
+    public long sizeInBytes() {
+        State current = state;
+        long overlayBytes = 0;
+        for (long[] list : current.overlay().values()) {
+            // Array header plus the ids, map entry overhead left out
+            overlayBytes += 16 + list.length * 8L;
+        }
+        return current.base().sizeInBytes() + overlayBytes;
+    }
+}
@@ -0,0 +1,370 @@
+package com.loopify.mainservice.graph;
+
+import com.loopify.mainservice.service.user.FollowChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * In-process follow graph of the whole user base, for two-hop queries MySQL can't answer at our scale.
+ * <p>
+ * Loaded in the background after startup. Each replica periodically writes a snapshot to local disk; when
+ * a usable one exists it is memory mapped and caught up instead of reading the whole table. Follows are
+ * caught up from {@code user_follows.created_at}, unfollows (which leave no row behind) from a Redis log of
+ * recent unfollows. Without a snapshot {@code user_follows} is streamed in primary key order, which is
+ * exactly the order {@link CompressedAdjacency.Builder} needs.
+ * <p>
+ * Every replica keeps its own copy current: committed follow changes are broadcast on a Redis channel and
+ * applied by all replicas, including the sender. Changes arriving during the load are queued and replayed
+ * afterwards. Until the first load finishes {@link #graph()} returns null.
+ */
+@Component
+@Slf4j
+public class FollowGraphIndex implements MessageListener {
+
+    public static final String CHANGES_CHANNEL = "follow-graph:changes";
+    // Sorted set of "followerId:followingId" scored by unfollow time in epoch ms
+    private static final String UNFOLLOWS_KEY = "follow-graph:unfollows";
+
+    private static final String EDGES_SQL = "SELECT follower_id, following_id FROM user_follows ORDER BY follower_id, following_id";
+    private static final String EDGES_SINCE_SQL = "SELECT follower_id, following_id FROM user_follows WHERE created_at >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final Timer snapshotLoadTimer;
+    private final Timer databaseLoadTimer;
+    private final Timer compactTimer;
+    private final Timer snapshotWriteTimer;
+
+    @Value("${app.graph-index.enabled:true}")
+    private boolean enabled;
+
+    // Only takes effect with useCursorFetch=true on the MySQL URL, otherwise the driver buffers the whole result
+    @Value("${app.graph-index.fetch-size:10000}")
+    private int fetchSize;
+
+    @Value("${app.graph-index.compact-threshold:50000}")
+    private int compactThreshold;
+
+    @Value("${app.graph-index.suggestions.max-first-hop:500}")
+    private int maxFirstHop;
+
+    @Value("${app.graph-index.suggestions.max-second-hop:1000}")
+    private int maxSecondHop;
+
+    @Value("${app.graph-index.suggestions.time-budget:50ms}")
+    private Duration suggestionBudget;
+
+    @Value("${app.graph-index.snapshot.enabled:true}")
+    private boolean snapshotEnabled;
+
+    @Value("${app.graph-index.snapshot.path:data/follow-graph.snapshot}")
+    private Path snapshotPath;
+
+    // Covers clock skew between replicas and changes still in flight when a snapshot was taken
+    @Value("${app.graph-index.snapshot.catch-up-margin:5m}")
+    private Duration catchUpMargin;
+
+    // How long unfollows are logged, older snapshots can't be caught up and are ignored
+    @Value("${app.graph-index.snapshot.unfollow-retention:2d}")
+    private Duration unfollowRetention;
+
+    private volatile FollowGraph graph;
+    // Changes received while the graph is loading, null once it is live
+    private volatile Queue<String> pendingChanges = new ConcurrentLinkedQueue<>();
+    private volatile Thread loader;
+    private volatile boolean loadFailed;
+    private volatile long snapshotBytes;
+
+    public FollowGraphIndex(JdbcTemplate jdbcTemplate, StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.snapshotLoadTimer = meterRegistry.timer("follow.graph.load.duration", "source", "snapshot");
+        this.databaseLoadTimer = meterRegistry.timer("follow.graph.load.duration", "source", "database");
+        this.compactTimer = meterRegistry.timer("follow.graph.compact.duration");
+        this.snapshotWriteTimer = meterRegistry.timer("follow.graph.snapshot.write.duration");
+        Gauge.builder("follow.graph.edges", this, index -> index.graph == null ? 0 : index.graph.edgeCount())
+                .register(meterRegistry);
+        Gauge.builder("follow.graph.bytes", this, index -> index.graph == null ? 0 : index.graph.sizeInBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("follow.graph.overlay.users", this, index -> index.graph == null ? 0 : index.graph.overlaySize())
+                .register(meterRegistry);
+        // Size of the snapshot last loaded or written; while mapped, the page cache holds it rather than the heap
+        Gauge.builder("follow.graph.snapshot.bytes", this, index -> index.snapshotBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        if (!enabled) {
+            return;
+        }
+        // Off the startup path, a large graph takes a while to stream
+        Thread thread = new Thread(this::load, "follow-graph-loader");
+        thread.setDaemon(true);
+        loader = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        Thread thread = loader;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * @return the live graph, or null while it is still loading (or disabled)
+     */
+    public FollowGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Friends-of-friends suggestions within the configured time budget, or null if the graph isn't loaded.
+     */
+    public FriendsOfFriends.Result suggest(long userId, int limit) {
+        FollowGraph current = graph;
+        if (current == null) {
+            return null;
+        }
+        long deadline = System.nanoTime() + suggestionBudget.toNanos();
+        return FriendsOfFriends.suggest(current, userId, limit, maxFirstHop, maxSecondHop, deadline);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onFollowChanged(FollowChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        String change = (event.followed() ? "1:" : "0:") + event.followerId() + ":" + event.followingId();
+        if (!event.followed() && snapshotEnabled) {
+            logUnfollow(event);
+        }
+        try {
+            // Comes back to this replica through the subscription as well
+            redisTemplate.convertAndSend(CHANGES_CHANNEL, change);
+        } catch (Exception e) {
+            log.warn("Broadcasting follow graph change {} failed, applying locally only: {}", change, e.getMessage());
+            receive(change);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (enabled) {
+            receive(new String(message.getBody(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.graph-index.compact-interval:PT5M}")
+    public void compactIfNeeded() {
+        if (loadFailed && loader == null) {
+            log.info("Retrying the follow graph load");
+            loadFailed = false;
+            startLoading();
+            return;
+        }
+        FollowGraph current = graph;
+        if (current != null && current.overlaySize() >= compactThreshold) {
+            compactTimer.record(current::compact);
+            log.info("Follow graph compacted, {} edges in {} bytes", current.edgeCount(), current.sizeInBytes());
+        }
+    }
+
+    private void receive(String change) {
+        Queue<String> pending = pendingChanges;
+        if (pending != null) {
+            if (loadFailed) {
+                // The retry streams the table again, which already includes this change
+                return;
+            }
+            pending.add(change);
+            // The load may have finished in between, goLive() drains whatever made it into the queue
+            if (pendingChanges != null) {
+                return;
+            }
+            change = pending.poll();
+            if (change == null) {
+                return;
+            }
+        }
+        apply(graph, change);
+    }
+
+    /**
+     * Writes the live graph to the snapshot file, replacing the previous one.
+     */
+    @Scheduled(fixedDelayString = "${app.graph-index.snapshot.interval:PT30M}",
+            initialDelayString = "${app.graph-index.snapshot.interval:PT30M}")
+    public void writeSnapshot() {
+        FollowGraph current = graph;
+        if (!snapshotEnabled || current == null) {
+            return;
+        }
+        // Taken first: every change applied before this instant is in the merged adjacency
+        long watermark = System.currentTimeMillis();
+        long start = System.nanoTime();
+        try {
+            snapshotBytes = FollowGraphSnapshot.write(current.merged(), watermark, snapshotPath);
+            snapshotWriteTimer.record(Duration.ofNanos(System.nanoTime() - start));
+            log.info("Follow graph snapshot written to {}: {} bytes", snapshotPath, snapshotBytes);
+        } catch (IOException e) {
+            log.warn("Writing the follow graph snapshot to {} failed: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    private void load() {
+        long start = System.nanoTime();
+        try {
+            FollowGraph loaded = snapshotEnabled ? loadSnapshot() : null;
+            Timer timer = snapshotLoadTimer;
+            if (loaded == null) {
+                loaded = new FollowGraph(streamEdges());
+                timer = databaseLoadTimer;
+            }
+            goLive(loaded);
+            timer.record(Duration.ofNanos(System.nanoTime() - start));
+            log.info("Follow graph loaded from {}: {} edges, {} bytes in {} ms",
+                    timer == snapshotLoadTimer ? "snapshot" : "database", loaded.edgeCount(), loaded.sizeInBytes(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.error("Loading the follow graph failed, retrying on the next maintenance run: {}", e.getMessage(), e);
+            loadFailed = true;
+            pendingChanges.clear();
+        } finally {
+            loader = null;
+        }
+    }
+
+    /**
+     * Publishes the graph and replays the changes queued while it was built.
+     */
+    synchronized void goLive(FollowGraph loaded) {
+        Queue<String> pending = pendingChanges;
+        graph = loaded;
+        pendingChanges = null;
+        String change;
+        while ((change = pending.poll()) != null) {
+            apply(loaded, change);
+        }
+    }
+
+    /**
+     * Maps the snapshot and catches it up with the changes since its watermark.
+     *
+     * @return the caught-up graph, or null if there is no usable snapshot
+     */
+    private FollowGraph loadSnapshot() {
+        if (!Files.isRegularFile(snapshotPath)) {
+            return null;
+        }
+        FollowGraphSnapshot.Loaded snapshot;
+        try {
+            snapshot = FollowGraphSnapshot.read(snapshotPath);
+        } catch (IOException e) {
+            log.warn("Ignoring follow graph snapshot {}: {}", snapshotPath, e.getMessage());
+            return null;
+        }
+        long since = snapshot.watermarkMillis() - catchUpMargin.toMillis();
+        if (since < System.currentTimeMillis() - unfollowRetention.toMillis()) {
+            log.info("Follow graph snapshot {} is older than the unfollow log, loading from the database", snapshotPath);
+            return null;
+        }
+        Set<String> unfollows;
+        try {
+            unfollows = redisTemplate.opsForZSet().rangeByScore(UNFOLLOWS_KEY, since, Double.POSITIVE_INFINITY);
+        } catch (Exception e) {
+            log.warn("Reading the unfollow log failed, loading the follow graph from the database: {}", e.getMessage());
+            return null;
+        }
+
+        FollowGraph loaded = new FollowGraph(snapshot.adjacency());
+        // Unfollows first: a user who unfollowed and followed again has a fresh row that the follows below restore
+        if (unfollows != null) {
+            for (String unfollow : unfollows) {
+                apply(loaded, "0:" + unfollow);
+            }
+        }
+        int[] follows = new int[1];
+        jdbcTemplate.query(EDGES_SINCE_SQL, (ResultSet rs) -> {
+            loaded.apply(rs.getLong(1), rs.getLong(2), true);
+            follows[0]++;
+        }, new Timestamp(since));
+        if (loaded.overlaySize() >= compactThreshold) {
+            loaded.compact();
+        }
+        snapshotBytes = snapshot.fileBytes();
+        log.info("Follow graph snapshot {} caught up with {} unfollows and {} follows", snapshotPath,
+                unfollows == null ? 0 : unfollows.size(), follows[0]);
+        return loaded;
+    }
+
+    private void logUnfollow(FollowChangedEvent event) {
+        long now = System.currentTimeMillis();
+        try {
+            redisTemplate.opsForZSet().add(UNFOLLOWS_KEY, event.followerId() + ":" + event.followingId(), now);
+            redisTemplate.opsForZSet().removeRangeByScore(UNFOLLOWS_KEY, Double.NEGATIVE_INFINITY,
+                    now - unfollowRetention.toMillis());
+        } catch (Exception e) {
+            // A snapshot taken before this unfollow would bring the edge back on restart
+            log.warn("Logging unfollow {} -> {} failed: {}", event.followerId(), event.followingId(), e.getMessage());
+        }
+    }
+
+    private CompressedAdjacency streamEdges() {
+        Long edges = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_follows", Long.class);
+        CompressedAdjacency.Builder builder = new CompressedAdjacency.Builder(
+                (int) Math.min(Integer.MAX_VALUE - 8, edges == null ? 0 : edges / 8), edges == null ? 0 : edges);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EDGES_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (ResultSet rs) -> {
+            builder.add(rs.getLong(1), rs.getLong(2));
+        });
+        return builder.build();
+    }
+
+    private static void apply(FollowGraph target, String change) {
+        String[] parts = change.split(":");
+        if (parts.length != 3) {
+            log.warn("Ignoring malformed follow graph change: {}", change);
+            return;
+        }
+        try {
+            target.apply(Long.parseLong(parts[1]), Long.parseLong(parts[2]), "1".equals(parts[0]));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed follow graph change: {}", change);
+        }
+    }
+}
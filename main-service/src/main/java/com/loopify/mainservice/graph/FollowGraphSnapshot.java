@@ -0,0 +1,178 @@
+package com.loopify.mainservice.graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk form of a {@link CompressedAdjacency}, loaded by memory mapping the file.
+ * <p>
+ * Layout: a fixed header, an index of varint pairs per source node (gap to the previous node id, byte
+ * length of its edge data) and the edge data as stored in memory, sorted and delta-encoded. Only the index
+ * is decoded on load; the edge data stays a read-only view of the mapping, so the page cache holds it
+ * instead of the heap. A CRC32C over index and data guards against torn or truncated files.
+ */
+final class FollowGraphSnapshot {
+
+    private static final int MAGIC = 0x4C464753; // "LFGS"
+    private static final int VERSION = 1;
+    // magic, version, watermark, node count, edge count, index length, data length, checksum
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 8 + 4 + 4 + 8;
+
+    /**
+     * @param watermarkMillis epoch millis up to which follow changes are contained in the adjacency
+     */
+    record Loaded(CompressedAdjacency adjacency, long watermarkMillis, long fileBytes) {
+    }
+
+    private FollowGraphSnapshot() {
+    }
+
+    /**
+     * Writes the snapshot to a temporary file next to the target and moves it into place, so a crash
+     * mid-write never leaves a partial snapshot behind.
+     *
+     * @return the size of the written file
+     */
+    static long write(CompressedAdjacency adjacency, long watermarkMillis, Path target) throws IOException {
+        byte[] index = encodeIndex(adjacency);
+        ByteBuffer data = adjacency.data().duplicate().clear();
+        int dataLength = adjacency.offsets()[adjacency.nodeCount()];
+        data.limit(dataLength);
+
+        CRC32C crc = new CRC32C();
+        crc.update(index);
+        crc.update(data.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putLong(watermarkMillis)
+                .putInt(adjacency.nodeCount())
+                .putLong(adjacency.edgeCount())
+                .putInt(index.length)
+                .putInt(dataLength)
+                .putLong(crc.getValue())
+                .flip();
+
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(channel, header);
+                writeFully(channel, ByteBuffer.wrap(index));
+                writeFully(channel, data);
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return HEADER_BYTES + (long) index.length + dataLength;
+    }
+
+    /**
+     * Maps and validates a snapshot file.
+     *
+     * @throws IOException if the file can't be read or is not a valid snapshot
+     */
+    static Loaded read(Path source) throws IOException {
+        MappedByteBuffer mapped;
+        long fileBytes;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            fileBytes = channel.size();
+            if (fileBytes < HEADER_BYTES || fileBytes > Integer.MAX_VALUE) {
+                throw new IOException("Unexpected snapshot size " + fileBytes);
+            }
+            // The mapping outlives the channel
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileBytes);
+        }
+        if (mapped.getInt() != MAGIC || mapped.getInt() != VERSION) {
+            throw new IOException("Not a follow graph snapshot of version " + VERSION);
+        }
+        long watermarkMillis = mapped.getLong();
+        int nodeCount = mapped.getInt();
+        long edgeCount = mapped.getLong();
+        int indexLength = mapped.getInt();
+        int dataLength = mapped.getInt();
+        long checksum = mapped.getLong();
+        if (nodeCount < 0 || indexLength < 0 || dataLength < 0
+                || (long) HEADER_BYTES + indexLength + dataLength != fileBytes) {
+            throw new IOException("Snapshot header does not match the file size");
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(mapped.slice(HEADER_BYTES, indexLength + dataLength));
+        if (crc.getValue() != checksum) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+
+        ByteBuffer index = mapped.slice(HEADER_BYTES, indexLength);
+        long[] nodes = new long[nodeCount];
+        int[] offsets = new int[nodeCount + 1];
+        long node = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            node += readVarint(index);
+            nodes[i] = node;
+            offsets[i + 1] = Math.addExact(offsets[i], (int) readVarint(index));
+        }
+        if (index.hasRemaining() || offsets[nodeCount] != dataLength) {
+            throw new IOException("Snapshot index does not match the edge data");
+        }
+        ByteBuffer data = mapped.slice(HEADER_BYTES + indexLength, dataLength).asReadOnlyBuffer();
+        return new Loaded(new CompressedAdjacency(nodes, offsets, data, edgeCount), watermarkMillis, fileBytes);
+    }
+
+    private static byte[] encodeIndex(CompressedAdjacency adjacency) {
+        int[] offsets = adjacency.offsets();
+        int nodeCount = adjacency.nodeCount();
+        // At most 10 bytes per node id gap and 5 per length
+        ByteBuffer index = ByteBuffer.allocate(Math.multiplyExact(nodeCount, 15));
+        long previous = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            long node = adjacency.nodeAt(i);
+            writeVarint(index, node - previous);
+            writeVarint(index, offsets[i + 1] - offsets[i]);
+            previous = node;
+        }
+        byte[] result = new byte[index.position()];
+        index.flip().get(result);
+        return result;
+    }
+
+    private static void writeVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long readVarint(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (!buffer.hasRemaining() || shift > 63) {
+                throw new IOException("Truncated snapshot index");
+            }
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
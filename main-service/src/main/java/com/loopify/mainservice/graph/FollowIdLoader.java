@@ -0,0 +1,45 @@
+package com.loopify.mainservice.graph;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Reads a user's follower ids straight into a sorted {@code long[]}, no entities and no boxing. The query
+ * is answered from the (following_id, created_at, follower_id) index alone; sorting in memory is cheaper
+ * than asking MySQL for follower_id order, which it would have to filesort anyway.
+ */
+@Component
+@RequiredArgsConstructor
+public class FollowIdLoader {
+
+    private static final String FOLLOWER_IDS_SQL = "SELECT follower_id FROM user_follows WHERE following_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Only takes effect with useCursorFetch=true on the MySQL URL, otherwise the driver buffers the whole result
+    @Value("${app.mutual-followers.fetch-size:10000}")
+    private int fetchSize;
+
+    /**
+     * @param expectedSize expected number of followers, to size the array up front
+     * @return follower ids, ascending
+     */
+    public long[] followerIds(long userId, int expectedSize) {
+        LongArrayBuilder ids = new LongArrayBuilder(expectedSize);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(FOLLOWER_IDS_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, userId);
+            return statement;
+        }, (ResultSet rs) -> {
+            ids.add(rs.getLong(1));
+        });
+        return ids.toSortedArray();
+    }
+}
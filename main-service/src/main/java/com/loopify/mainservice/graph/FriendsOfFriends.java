@@ -0,0 +1,56 @@
+package com.loopify.mainservice.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * "People you may know": users followed by the people a user follows, ranked by how many of them do so.
+ * <p>
+ * The walk is bounded three ways: at most {@code maxFirstHop} followed users are expanded (spread evenly
+ * over the list when it is longer), at most {@code maxSecondHop} of each one's follows are counted, and
+ * the walk stops at the deadline with whatever it has counted so far, flagged as partial.
+ */
+public final class FriendsOfFriends {
+
+    public record Suggestion(long userId, int sharedConnections) {
+    }
+
+    public record Result(List<Suggestion> suggestions, boolean partial) {
+    }
+
+    private FriendsOfFriends() {
+    }
+
+    public static Result suggest(FollowGraph graph, long userId, int limit,
+                                 int maxFirstHop, int maxSecondHop, long deadlineNanos) {
+        long[] following = graph.following(userId);
+        if (following.length == 0 || limit <= 0) {
+            return new Result(List.of(), false);
+        }
+        int hops = Math.min(following.length, maxFirstHop);
+        double stride = (double) following.length / hops;
+        LongIntCounter candidates = new LongIntCounter(Math.min(hops * 16, 1 << 16));
+        boolean partial = false;
+
+        for (int i = 0; i < hops; i++) {
+            if (System.nanoTime() - deadlineNanos > 0) {
+                partial = true;
+                break;
+            }
+            long friend = following[(int) (i * stride)];
+            graph.forEachFollowing(friend, maxSecondHop, candidate -> {
+                if (candidate != userId && Arrays.binarySearch(following, candidate) < 0) {
+                    candidates.increment(candidate);
+                }
+            });
+        }
+
+        LongIntCounter.TopEntries top = candidates.top(limit);
+        List<Suggestion> suggestions = new ArrayList<>(top.keys().length);
+        for (int i = 0; i < top.keys().length; i++) {
+            suggestions.add(new Suggestion(top.keys()[i], top.counts()[i]));
+        }
+        return new Result(suggestions, partial);
+    }
+}
@@ -0,0 +1,40 @@
+package com.loopify.mainservice.graph;
+
+import java.util.Arrays;
+
+/**
+ * Growable {@code long[]} for collecting ids from a result set without boxing.
+ */
+final class LongArrayBuilder {
+
+    private long[] values;
+    private int size;
+
+    LongArrayBuilder(int expectedSize) {
+        this.values = new long[Math.max(expectedSize, 16)];
+    }
+
+    void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length + (values.length >> 1));
+        }
+        values[size++] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long[] toArray() {
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    /**
+     * The collected values sorted ascending, trimmed to size.
+     */
+    long[] toSortedArray() {
+        long[] result = toArray();
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+package com.loopify.mainservice.graph;
+
+/**
+ * Open-addressing {@code long -> int} counter, so tallying candidates doesn't box. Keys must not be 0.
+ */
+final class LongIntCounter {
+
+    private long[] keys;
+    private int[] counts;
+    private int size;
+    private int mask;
+
+    LongIntCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.counts = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    void increment(long key) {
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = 1;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The {@code limit} keys with the highest counts, highest first; ties go to the smaller key.
+     * Returned as parallel arrays: [keys, counts].
+     */
+    TopEntries top(int limit) {
+        int n = Math.min(limit, size);
+        if (n <= 0) {
+            return new TopEntries(new long[0], new int[0]);
+        }
+        long[] topKeys = new long[n];
+        int[] topCounts = new int[n];
+        int filled = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            long key = keys[slot];
+            if (key == 0) {
+                continue;
+            }
+            int count = counts[slot];
+            if (filled == n && !ranksBefore(count, key, topCounts[n - 1], topKeys[n - 1])) {
+                continue;
+            }
+            // Insertion into the small sorted top list
+            int position = filled < n ? filled++ : n - 1;
+            while (position > 0 && ranksBefore(count, key, topCounts[position - 1], topKeys[position - 1])) {
+                topKeys[position] = topKeys[position - 1];
+                topCounts[position] = topCounts[position - 1];
+                position--;
+            }
+            topKeys[position] = key;
+            topCounts[position] = count;
+        }
+        return new TopEntries(topKeys, topCounts);
+    }
+
+    record TopEntries(long[] keys, int[] counts) {
+    }
+
+    private static boolean ranksBefore(int count, long key, int otherCount, long otherKey) {
+        return count > otherCount || (count == otherCount && key < otherKey);
+    }
+
+    private int slot(long key) {
+        // Fibonacci hashing spreads sequential ids
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+}
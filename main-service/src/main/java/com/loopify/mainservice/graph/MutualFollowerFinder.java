@@ -0,0 +1,149 @@
+package com.loopify.mainservice.graph;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.loopify.mainservice.service.user.UserStatsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Followers two users have in common, in ascending id order.
+ * <p>
+ * When one of them has few followers, MySQL walks that user's followers and probes the other side's
+ * primary key, which touches only the small list. Otherwise both follower lists are loaded as sorted
+ * {@code long[]} and intersected in memory with {@link SortedLongSets}. That result is cached per user pair
+ * for a short TTL, so paging through it and counting it do not reload both lists on every request; a
+ * follow change shows up once the entry expires.
+ */
+@Component
+public class MutualFollowerFinder {
+
+    // a: followers of the smaller side, b: primary key probe into the other side
+    private static final String JOIN_FROM = "FROM user_follows a " +
+            "JOIN user_follows b ON b.follower_id = a.follower_id AND b.following_id = ? " +
+            "WHERE a.following_id = ? ";
+    private static final String PAGE_SQL = "SELECT a.follower_id " + JOIN_FROM +
+            "AND a.follower_id > ? ORDER BY a.follower_id LIMIT ?";
+    private static final String COUNT_SQL = "SELECT COUNT(*) " + JOIN_FROM;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FollowIdLoader followIdLoader;
+    private final UserStatsService userStatsService;
+    private final Timer sqlTimer;
+    private final Timer memoryTimer;
+    private final Cache<UserPair, long[]> mutualCache;
+
+    @Value("${app.mutual-followers.sql-threshold:5000}")
+    private long sqlThreshold;
+
+    public MutualFollowerFinder(JdbcTemplate jdbcTemplate, FollowIdLoader followIdLoader,
+                                UserStatsService userStatsService, MeterRegistry meterRegistry,
+                                @Value("${app.mutual-followers.cache.ttl:30s}") Duration cacheTtl,
+                                @Value("${app.mutual-followers.cache.max-ids:4000000}") long cacheMaxIds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.followIdLoader = followIdLoader;
+        this.userStatsService = userStatsService;
+        this.sqlTimer = mutualTimer(meterRegistry, "sql");
+        this.memoryTimer = mutualTimer(meterRegistry, "memory");
+        // Bounded by the total number of cached ids (8 bytes each), not by the number of pairs
+        this.mutualCache = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxIds)
+                .weigher((UserPair pair, long[] ids) -> Math.max(1, ids.length))
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, mutualCache, "mutual-followers");
+    }
+
+    private static Timer mutualTimer(MeterRegistry meterRegistry, String path) {
+        return Timer.builder("follow.mutual.duration")
+                .tag("path", path)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Up to {@code limit} common followers with an id greater than {@code afterId}.
+     */
+    public long[] find(long userId1, long userId2, long afterId, int limit) {
+        Sizes sizes = sizes(userId1, userId2);
+        if (sizes.smaller() <= sqlThreshold) {
+            return sqlTimer.record(() -> {
+                List<Long> ids = jdbcTemplate.queryForList(PAGE_SQL, Long.class,
+                        sizes.largerUserId(), sizes.smallerUserId(), afterId, limit);
+                return ids.stream().mapToLong(Long::longValue).toArray();
+            });
+        }
+        return memoryTimer.record(() -> {
+            long[] mutual = mutualFollowers(sizes);
+            int from = SortedLongSets.firstGreater(mutual, mutual.length, afterId);
+            return Arrays.copyOfRange(mutual, from, from + Math.min(limit, mutual.length - from));
+        });
+    }
+
+    public long count(long userId1, long userId2) {
+        Sizes sizes = sizes(userId1, userId2);
+        if (sizes.smaller() <= sqlThreshold) {
+            return sqlTimer.record(() -> {
+                Long count = jdbcTemplate.queryForObject(COUNT_SQL, Long.class, sizes.largerUserId(), sizes.smallerUserId());
+                return count != null ? count : 0L;
+            });
+        }
+        return memoryTimer.record(() -> (long) mutualFollowers(sizes).length);
+    }
+
+    // Concurrent misses for the same pair wait for one load instead of each reading both lists
+    private long[] mutualFollowers(Sizes sizes) {
+        return mutualCache.get(UserPair.of(sizes.userId1(), sizes.userId2()), pair -> {
+            long[] a = followIdLoader.followerIds(sizes.userId1(), sizes.expected(sizes.userId1()));
+            long[] b = followIdLoader.followerIds(sizes.userId2(), sizes.expected(sizes.userId2()));
+            long[] out = new long[Math.min(a.length, b.length)];
+            int n = SortedLongSets.intersect(a, a.length, b, b.length, out);
+            return n == out.length ? out : Arrays.copyOf(out, n);
+        });
+    }
+
+    // Follower counts from the maintained counters, only used to pick the strategy and presize arrays
+    private Sizes sizes(long userId1, long userId2) {
+        long followers1 = userStatsService.getCounts(userId1).followers();
+        long followers2 = userStatsService.getCounts(userId2).followers();
+        return new Sizes(userId1, followers1, userId2, followers2);
+    }
+
+    // Ordered by id, so both argument orders share an entry
+    private record UserPair(long lowerId, long higherId) {
+
+        static UserPair of(long userId1, long userId2) {
+            return new UserPair(Math.min(userId1, userId2), Math.max(userId1, userId2));
+        }
+    }
+
+    private record Sizes(long userId1, long followers1, long userId2, long followers2) {
+
+        long smaller() {
+            return Math.min(followers1, followers2);
+        }
+
+        long smallerUserId() {
+            return followers1 <= followers2 ? userId1 : userId2;
+        }
+
+        long largerUserId() {
+            return followers1 <= followers2 ? userId2 : userId1;
+        }
+
+        int expected(long userId) {
+            long followers = userId == userId1 ? followers1 : followers2;
+            // Counters may lag slightly, leave some headroom
+            return (int) Math.min(Integer.MAX_VALUE - 8, Math.max(0, followers) + (followers >> 4));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.loopify.mainservice.graph;
+
+/**
+ * Intersection of ascending, duplicate-free {@code long[]} id sets without boxing.
+ * <p>
+ * Sets of similar size are merged linearly. When one side is much larger, each element of the smaller
+ * side is located in the larger by galloping (exponential then binary search) from the previous match,
+ * which costs O(m log(n/m)) instead of O(n + m).
+ */
+public final class SortedLongSets {
+
+    // Size ratio above which galloping beats the linear merge
+    static final int GALLOP_RATIO = 32;
+
+    private SortedLongSets() {
+    }
+
+    /**
+     * Writes the common elements of {@code a[0..aLen)} and {@code b[0..bLen)} to {@code out}, ascending.
+     *
+     * @return number of elements written
+     */
+    public static int intersect(long[] a, int aLen, long[] b, int bLen, long[] out) {
+        return intersect(a, 0, aLen, b, 0, bLen, out, Integer.MAX_VALUE);
+    }
+
+    public static int intersectionSize(long[] a, int aLen, long[] b, int bLen) {
+        return intersect(a, 0, aLen, b, 0, bLen, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes up to {@code limit} common elements greater than {@code after} to {@code out}, ascending.
+     *
+     * @return number of elements written
+     */
+    public static int intersectAfter(long[] a, int aLen, long[] b, int bLen, long after, long[] out, int limit) {
+        int aFrom = firstGreater(a, aLen, after);
+        int bFrom = firstGreater(b, bLen, after);
+        return intersect(a, aFrom, aLen, b, bFrom, bLen, out, limit);
+    }
+
+    /**
+     * Intersects {@code a[aFrom..aTo)} with {@code b[bFrom..bTo)}. With a null {@code out} only counts.
+     */
+    static int intersect(long[] a, int aFrom, int aTo, long[] b, int bFrom, int bTo, long[] out, int limit) {
+        int aSize = aTo - aFrom;
+        int bSize = bTo - bFrom;
+        if (aSize <= 0 || bSize <= 0 || limit <= 0) {
+            return 0;
+        }
+        if (aSize > bSize) {
+            return intersect(b, bFrom, bTo, a, aFrom, aTo, out, limit);
+        }
+        if (bSize / aSize >= GALLOP_RATIO) {
+            return gallop(a, aFrom, aTo, b, bFrom, bTo, out, limit);
+        }
+        return merge(a, aFrom, aTo, b, bFrom, bTo, out, limit);
+    }
+
+    static int merge(long[] a, int aFrom, int aTo, long[] b, int bFrom, int bTo, long[] out, int limit) {
+        int i = aFrom;
+        int j = bFrom;
+        int n = 0;
+        while (i < aTo && j < bTo) {
+            long x = a[i];
+            long y = b[j];
+            if (x < y) {
+                i++;
+            } else if (x > y) {
+                j++;
+            } else {
+                if (out != null) {
+                    out[n] = x;
+                }
+                if (++n == limit) {
+                    break;
+                }
+                i++;
+                j++;
+            }
+        }
+        return n;
+    }
+
+    // a is the smaller side
+    static int gallop(long[] small, int sFrom, int sTo, long[] large, int lFrom, int lTo, long[] out, int limit) {
+        int j = lFrom;
+        int n = 0;
+        for (int i = sFrom; i < sTo; i++) {
+            long x = small[i];
+            j = seek(large, j, lTo, x);
+            if (j == lTo) {
+                break;
+            }
+            if (large[j] == x) {
+                if (out != null) {
+                    out[n] = x;
+                }
+                if (++n == limit) {
+                    break;
+                }
+                j++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * First index in {@code a[from..to)} whose element is >= {@code x}, or {@code to}.
+     */
+    static int seek(long[] a, int from, int to, long x) {
+        if (from >= to || a[from] >= x) {
+            return from;
+        }
+        // a[lo] < x holds throughout; widen until a[hi] >= x or past the end
+        int lo = from;
+        int step = 1;
+        int hi = from + 1;
+        while (hi < to && a[hi] < x) {
+            lo = hi;
+            step <<= 1;
+            hi = from + step;
+        }
+        if (hi > to) {
+            hi = to;
+        }
+        // Binary search in (lo, hi]
+        int left = lo + 1;
+        int right = hi;
+        while (left < right) {
+            int mid = (left + right) >>> 1;
+            if (a[mid] < x) {
+                left = mid + 1;
+            } else {
+                right = mid;
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Index of the first element of {@code a[0..len)} greater than {@code after}, {@code len} if none.
+     */
+    static int firstGreater(long[] a, int len, long after) {
+        return after == Long.MAX_VALUE ? len : seek(a, 0, len, after + 1);
+    }
+}
@@ -52,6 +52,7 @@ public class NotificationOutbox {
     @PrePersist
     protected void onCreate() {
          createdAt = LocalDateTime.now();
+         updatedAt = createdAt;
          status = NotificationStatus.PENDING;
     }
 
@@ -7,7 +7,14 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_follows")
+@Table(name = "user_follows",
+        indexes = {
+                // Keyset pagination of followers / following, newest first
+                @Index(name = "idx_follows_following_created", columnList = "following_id, created_at, follower_id"),
+                @Index(name = "idx_follows_follower_created", columnList = "follower_id, created_at, following_id"),
+                // Catching up a follow graph snapshot
+                @Index(name = "idx_follows_created", columnList = "created_at")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
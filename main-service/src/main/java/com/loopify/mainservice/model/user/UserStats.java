@@ -0,0 +1,26 @@
+package com.loopify.mainservice.model.user;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * One shard of a user's follow counters. A user's counts are the sums over their shard rows; follows pick
+ * a shard at random, so popular accounts don't serialize every follow on a single row lock.
+ */
+@Entity
+@Table(name = "user_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserStats {
+
+    @EmbeddedId
+    private UserStatsId id;
+
+    @Column(name = "followers_count", nullable = false)
+    private long followersCount;
+
+    @Column(name = "following_count", nullable = false)
+    private long followingCount;
+}
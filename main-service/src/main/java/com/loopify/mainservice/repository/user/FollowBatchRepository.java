@@ -0,0 +1,69 @@
+package com.loopify.mainservice.repository.user;
+
+import com.loopify.mainservice.enums.NotificationStatus;
+import com.loopify.mainservice.model.NotificationOutbox;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC batch writes for bulk follow changes, one round trip per statement type instead of one per row.
+ * Runs in the caller's transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class FollowBatchRepository {
+
+    // Duplicates are skipped instead of failing the batch, concurrent follows of the same user are harmless
+    private static final String INSERT_FOLLOW_SQL =
+            "INSERT IGNORE INTO user_follows (follower_id, following_id, created_at) VALUES (?, ?, ?)";
+    private static final String DELETE_FOLLOW_SQL =
+            "DELETE FROM user_follows WHERE follower_id = ? AND following_id = ?";
+    private static final String INSERT_OUTBOX_SQL =
+            "INSERT INTO notification_outbox (id, notification_type, payload, status, created_at, updated_at, " +
+                    "retry_count, version) VALUES (?, ?, ?, ?, ?, ?, 0, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return per target the affected row count: 1 if inserted, 0 if the follow already existed, or
+     * {@link java.sql.Statement#SUCCESS_NO_INFO} if the driver rewrote the batch and can't tell
+     */
+    public int[] insertFollows(Long followerId, List<Long> followingIds, LocalDateTime createdAt) {
+        Timestamp timestamp = Timestamp.valueOf(createdAt);
+        return jdbcTemplate.batchUpdate(INSERT_FOLLOW_SQL, followingIds, followingIds.size(), (ps, followingId) -> {
+            ps.setLong(1, followerId);
+            ps.setLong(2, followingId);
+            ps.setTimestamp(3, timestamp);
+        })[0];
+    }
+
+    /**
+     * @return per target the affected row count, as for {@link #insertFollows}
+     */
+    public int[] deleteFollows(Long followerId, List<Long> followingIds) {
+        return jdbcTemplate.batchUpdate(DELETE_FOLLOW_SQL, followingIds, followingIds.size(), (ps, followingId) -> {
+            ps.setLong(1, followerId);
+            ps.setLong(2, followingId);
+        })[0];
+    }
+
+    /**
+     * Inserts new pending outbox rows; the entity callbacks don't run, so timestamps and status are set here.
+     */
+    public void insertOutbox(List<NotificationOutbox> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_OUTBOX_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.getId());
+            ps.setString(2, row.getNotificationType().name());
+            ps.setString(3, row.getPayload());
+            ps.setString(4, NotificationStatus.PENDING.name());
+            ps.setTimestamp(5, now);
+            ps.setTimestamp(6, now);
+        });
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
@@ -14,9 +15,14 @@ public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long
     Optional<RefreshToken> findByToken(String token);
 
 
+    // Next purge batch in primary key order, so each batch is a short range scan continuing where the last stopped
+    @Query(value = "SELECT id FROM refresh_tokens WHERE id > :afterId AND (expires_at < :now OR is_revoked = true) " +
+            "ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Long> findPurgeableIds(long afterId, Instant now, int limit);
+
     @Modifying
-    @Query("DELETE FROM RefreshToken rt WHERE rt.expiresAt < :now and rt.isRevoked = true ")
-    void deleteExpiredTokens(Instant now);
+    @Query("DELETE FROM RefreshToken rt WHERE rt.id IN :ids")
+    int deleteByIds(List<Long> ids);
 
     @Modifying
     @Query("UPDATE RefreshToken rt SET rt.isRevoked = true WHERE rt.user = :user AND rt.isRevoked = false")
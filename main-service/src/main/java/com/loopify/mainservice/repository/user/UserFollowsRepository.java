@@ -1,12 +1,20 @@
 package com.loopify.mainservice.repository.user;
 
+import com.loopify.mainservice.dto.user.FollowEdge;
+import com.loopify.mainservice.dto.user.UserFollowDto;
 import com.loopify.mainservice.model.user.UserFollows;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface UserFollowsRepository extends JpaRepository<UserFollows, Long> {
 
@@ -16,6 +24,76 @@ public interface UserFollowsRepository extends JpaRepository<UserFollows, Long>
     @Query("SELECT uf FROM UserFollows uf WHERE uf.following.id = :userId")
     List<UserFollows> findAllFollowersByUserId(@Param("userId") Long userId);
 
+    // Page projections select only the columns the list shows, newest first. The id breaks ties between
+    // follows created in the same instant so pages don't overlap. isFollowingBack is filled in by the caller.
+    @Query(value = "SELECT new com.loopify.mainservice.dto.user.UserFollowDto(u.id, u.nickname, u.avatarUrl, uf.createdAt, false) " +
+            "FROM UserFollows uf JOIN uf.follower u WHERE uf.following.id = :userId " +
+            "ORDER BY uf.createdAt DESC, u.id DESC",
+            countQuery = "SELECT COUNT(uf) FROM UserFollows uf WHERE uf.following.id = :userId")
+    Page<UserFollowDto> findFollowersPage(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(value = "SELECT new com.loopify.mainservice.dto.user.UserFollowDto(u.id, u.nickname, u.avatarUrl, uf.createdAt, false) " +
+            "FROM UserFollows uf JOIN uf.following u WHERE uf.follower.id = :userId " +
+            "ORDER BY uf.createdAt DESC, u.id DESC",
+            countQuery = "SELECT COUNT(uf) FROM UserFollows uf WHERE uf.follower.id = :userId")
+    Page<UserFollowDto> findFollowingPage(@Param("userId") Long userId, Pageable pageable);
+
+    // Keyset pages: (created_at, other user id) descending, resuming strictly after the last row of the previous
+    // page. Served from idx_follows_following_created / idx_follows_follower_created without skipping rows.
+    @Query("SELECT new com.loopify.mainservice.dto.user.UserFollowDto(u.id, u.nickname, u.avatarUrl, uf.createdAt, false) " +
+            "FROM UserFollows uf JOIN uf.follower u WHERE uf.following.id = :userId " +
+            "ORDER BY uf.createdAt DESC, uf.follower.id DESC")
+    List<UserFollowDto> findFollowersFirst(@Param("userId") Long userId, Limit limit);
+
+    @Query("SELECT new com.loopify.mainservice.dto.user.UserFollowDto(u.id, u.nickname, u.avatarUrl, uf.createdAt, false) " +
+            "FROM UserFollows uf JOIN uf.follower u WHERE uf.following.id = :userId " +
+            "AND (uf.createdAt < :createdAt OR (uf.createdAt = :createdAt AND uf.follower.id < :afterId)) " +
+            "ORDER BY uf.createdAt DESC, uf.follower.id DESC")
+    List<UserFollowDto> findFollowersAfter(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                           @Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT new com.loopify.mainservice.dto.user.UserFollowDto(u.id, u.nickname, u.avatarUrl, uf.createdAt, false) " +
+            "FROM UserFollows uf JOIN uf.following u WHERE uf.follower.id = :userId " +
+            "ORDER BY uf.createdAt DESC, uf.following.id DESC")
+    List<UserFollowDto> findFollowingFirst(@Param("userId") Long userId, Limit limit);
+
+    @Query("SELECT new com.loopify.mainservice.dto.user.UserFollowDto(u.id, u.nickname, u.avatarUrl, uf.createdAt, false) " +
+            "FROM UserFollows uf JOIN uf.following u WHERE uf.follower.id = :userId " +
+            "AND (uf.createdAt < :createdAt OR (uf.createdAt = :createdAt AND uf.following.id < :afterId)) " +
+            "ORDER BY uf.createdAt DESC, uf.following.id DESC")
+    List<UserFollowDto> findFollowingAfter(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                           @Param("afterId") Long afterId, Limit limit);
+
+    // Newest edges only, to fill the follow graph cache
+    @Query("SELECT new com.loopify.mainservice.dto.user.FollowEdge(uf.follower.id, uf.createdAt) FROM UserFollows uf " +
+            "WHERE uf.following.id = :userId ORDER BY uf.createdAt DESC, uf.follower.id DESC")
+    List<FollowEdge> findFollowerEdges(@Param("userId") Long userId, Limit limit);
+
+    @Query("SELECT new com.loopify.mainservice.dto.user.FollowEdge(uf.following.id, uf.createdAt) FROM UserFollows uf " +
+            "WHERE uf.follower.id = :userId ORDER BY uf.createdAt DESC, uf.following.id DESC")
+    List<FollowEdge> findFollowingEdges(@Param("userId") Long userId, Limit limit);
+
+    // List rows for users picked from the follow graph cache, primary key lookups only
+    @Query("SELECT new com.loopify.mainservice.dto.user.UserFollowDto(u.id, u.nickname, u.avatarUrl, uf.createdAt, false) " +
+            "FROM UserFollows uf JOIN uf.follower u WHERE uf.following.id = :userId AND uf.follower.id IN :userIds")
+    List<UserFollowDto> findFollowersByIds(@Param("userId") Long userId, @Param("userIds") Collection<Long> userIds);
+
+    @Query("SELECT new com.loopify.mainservice.dto.user.UserFollowDto(u.id, u.nickname, u.avatarUrl, uf.createdAt, false) " +
+            "FROM UserFollows uf JOIN uf.following u WHERE uf.follower.id = :userId AND uf.following.id IN :userIds")
+    List<UserFollowDto> findFollowingByIds(@Param("userId") Long userId, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Which of the given users the user follows.
+     */
+    @Query("SELECT uf.following.id FROM UserFollows uf WHERE uf.follower.id = :userId AND uf.following.id IN :userIds")
+    Set<Long> findFollowedAmong(@Param("userId") Long userId, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Which of the given users follow the user.
+     */
+    @Query("SELECT uf.follower.id FROM UserFollows uf WHERE uf.following.id = :userId AND uf.follower.id IN :userIds")
+    Set<Long> findFollowersAmong(@Param("userId") Long userId, @Param("userIds") Collection<Long> userIds);
+
     @Query("SELECT COUNT(uf) FROM UserFollows uf WHERE uf.follower.id = :userId")
     long countFollowing(@Param("userId") Long userId);
 
@@ -26,7 +104,19 @@ public interface UserFollowsRepository extends JpaRepository<UserFollows, Long>
             "WHERE uf.follower.id = :followerId AND uf.following.id = :followingId")
     boolean existsByFollowerIdAndFollowingId(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
 
+    /**
+     * Inserts the follow unless it exists. IGNORE also turns foreign key errors into warnings, so both users
+     * must be known to exist.
+     *
+     * @return 1 if inserted, 0 if the follow already existed
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO user_follows (follower_id, following_id, created_at) " +
+            "VALUES (:followerId, :followingId, :createdAt)", nativeQuery = true)
+    int insertIgnore(@Param("followerId") Long followerId, @Param("followingId") Long followingId,
+                     @Param("createdAt") LocalDateTime createdAt);
+
     @Query("DELETE FROM UserFollows uf WHERE uf.follower.id = :followerId AND uf.following.id = :followingId")
     @Modifying
-    void deleteByFollowerIdAndFollowingId(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
+    int deleteByFollowerIdAndFollowingId(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
 }
@@ -1,8 +1,13 @@
 package com.loopify.mainservice.repository.user;
 
+import com.loopify.mainservice.dto.user.UserSummary;
 import com.loopify.mainservice.model.user.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -11,4 +16,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByGoogleId(String googleId);
     Boolean existsByEmail(String email);
     Boolean existsByNickname(String nickname);
+
+    @Query("SELECT new com.loopify.mainservice.dto.user.UserSummary(u.id, u.nickname, u.avatarUrl) " +
+            "FROM User u WHERE u.id IN :ids AND u.isActive = true")
+    List<UserSummary> findActiveSummaries(@Param("ids") Collection<Long> ids);
 }
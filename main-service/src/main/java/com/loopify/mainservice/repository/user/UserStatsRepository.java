@@ -0,0 +1,41 @@
+package com.loopify.mainservice.repository.user;
+
+import com.loopify.mainservice.dto.user.FollowCounts;
+import com.loopify.mainservice.model.user.UserStats;
+import com.loopify.mainservice.model.user.UserStatsId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface UserStatsRepository extends JpaRepository<UserStats, UserStatsId> {
+
+    // Adds to one shard row, creating it on first use. Only that row is locked.
+    String ADD_COUNTS_SQL = "INSERT INTO user_stats (user_id, shard, followers_count, following_count) " +
+            "VALUES (:userId, :shard, :followersDelta, :followingDelta) " +
+            "ON DUPLICATE KEY UPDATE followers_count = followers_count + VALUES(followers_count), " +
+            "following_count = following_count + VALUES(following_count)";
+
+    @Modifying
+    @Query(value = ADD_COUNTS_SQL, nativeQuery = true)
+    int addCounts(@Param("userId") Long userId, @Param("shard") int shard,
+                  @Param("followersDelta") long followersDelta, @Param("followingDelta") long followingDelta);
+
+    @Query("SELECT new com.loopify.mainservice.dto.user.FollowCounts(COALESCE(SUM(s.followersCount), 0), " +
+            "COALESCE(SUM(s.followingCount), 0)) FROM UserStats s WHERE s.id.userId = :userId")
+    FollowCounts sumCounts(@Param("userId") Long userId);
+
+    /**
+     * Next reconcile batch in user id order: [user id, actual followers, actual following, counted followers,
+     * counted following]. All in one statement, so the actual and counted values come from the same snapshot.
+     */
+    @Query(value = "SELECT u.id, " +
+            "(SELECT COUNT(*) FROM user_follows f WHERE f.following_id = u.id), " +
+            "(SELECT COUNT(*) FROM user_follows f WHERE f.follower_id = u.id), " +
+            "(SELECT COALESCE(SUM(s.followers_count), 0) FROM user_stats s WHERE s.user_id = u.id), " +
+            "(SELECT COALESCE(SUM(s.following_count), 0) FROM user_stats s WHERE s.user_id = u.id) " +
+            "FROM users u WHERE u.id > :afterId ORDER BY u.id LIMIT :limit", nativeQuery = true)
+    List<Object[]> findCountsForReconcile(@Param("afterId") long afterId, @Param("limit") int limit);
+}
@@ -0,0 +1,25 @@
+package com.loopify.mainservice.schedule;
+
+import java.time.Duration;
+
+/**
+ * Pause between the batches of a long-running cleanup job, giving replication and concurrent writers room.
+ */
+final class BatchPause {
+
+    private BatchPause() {
+    }
+
+    /**
+     * @return false if the thread was interrupted, the job should stop
+     */
+    static boolean sleep(Duration pause) {
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
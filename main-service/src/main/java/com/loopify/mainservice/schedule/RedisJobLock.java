@@ -0,0 +1,40 @@
+package com.loopify.mainservice.schedule;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Lease-style lock so a scheduled job runs on one replica at a time. The lock expires on its own if the
+ * holder dies, and is only released by the holder that acquired it.
+ */
+@Component
+@RequiredArgsConstructor
+public class RedisJobLock {
+
+    private static final String KEY_PREFIX = "job_lock:";
+    private static final RedisScript<Long> RELEASE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/job_lock_release.lua"), Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * @return the owner token to release the lock with, or empty if another replica holds it
+     */
+    public Optional<String> tryAcquire(String jobName, Duration leaseTime) {
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + jobName, token, leaseTime);
+        return Boolean.TRUE.equals(acquired) ? Optional.of(token) : Optional.empty();
+    }
+
+    public void release(String jobName, String token) {
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(KEY_PREFIX + jobName), token);
+    }
+}
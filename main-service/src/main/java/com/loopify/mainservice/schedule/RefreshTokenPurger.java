@@ -0,0 +1,83 @@
+package com.loopify.mainservice.schedule;
+
+import com.loopify.mainservice.repository.user.RefreshTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Deletes expired and revoked refresh tokens in small primary-key-ordered batches, each in its own
+ * transaction, so no single statement holds row locks or builds up undo log for long. Stops after
+ * {@code max-runtime}; the rest is picked up on the next run.
+ */
+@Component
+@Slf4j
+public class RefreshTokenPurger {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter deletedCounter;
+    private final Timer runTimer;
+
+    @Value("${app.refresh-token.purge.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.refresh-token.purge.pause:100ms}")
+    private Duration pause;
+
+    @Value("${app.refresh-token.purge.max-runtime:10m}")
+    private Duration maxRuntime;
+
+    public RefreshTokenPurger(RefreshTokenRepository refreshTokenRepository, TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.deletedCounter = meterRegistry.counter("refresh_token.purge.deleted");
+        this.runTimer = meterRegistry.timer("refresh_token.purge.duration");
+    }
+
+    /**
+     * @return number of rows deleted
+     */
+    public long purge() {
+        return runTimer.record(this::purgeBatches);
+    }
+
+    private long purgeBatches() {
+        long deadline = System.nanoTime() + maxRuntime.toNanos();
+        Instant now = Instant.now();
+        long afterId = 0;
+        long total = 0;
+
+        while (System.nanoTime() < deadline) {
+            List<Long> ids = refreshTokenRepository.findPurgeableIds(afterId, now, batchSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            Integer deleted = transactionTemplate.execute(status -> refreshTokenRepository.deleteByIds(ids));
+            total += deleted != null ? deleted : 0;
+            deletedCounter.increment(deleted != null ? deleted : 0);
+            afterId = ids.get(ids.size() - 1);
+
+            if (ids.size() < batchSize) {
+                break;
+            }
+            if (!BatchPause.sleep(pause)) {
+                break;
+            }
+        }
+        if (System.nanoTime() >= deadline) {
+            log.warn("Refresh token purge hit its max runtime of {}, continuing next run", maxRuntime);
+        }
+        log.info("Refresh token purge deleted {} rows", total);
+        return total;
+    }
+}
@@ -1,22 +1,60 @@
 package com.loopify.mainservice.schedule;
 
-import com.loopify.mainservice.repository.user.RefreshTokenRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Instant;
+import java.time.Duration;
+import java.util.Optional;
 
 @RequiredArgsConstructor
 @Component
+@Slf4j
 public class UserSchedule {
 
-    private final RefreshTokenRepository refreshTokenRepository;
+    private static final String PURGE_JOB = "refresh-token-purge";
+    private static final String STATS_RECONCILE_JOB = "user-stats-reconcile";
 
-    @Scheduled(cron = "0 0 3 * * ?") // Runs daily at 3 AM
-    @Transactional
+    private final RefreshTokenPurger refreshTokenPurger;
+    private final UserStatsReconciler userStatsReconciler;
+    private final RedisJobLock jobLock;
+
+    // Longer than the purge max runtime so the lock never lapses while a run is still going
+    @Value("${app.refresh-token.purge.lock-lease:15m}")
+    private Duration purgeLockLease;
+
+    // Longer than the reconcile max runtime
+    @Value("${app.user-stats.reconcile.lock-lease:30m}")
+    private Duration reconcileLockLease;
+
+    @Scheduled(cron = "${app.refresh-token.purge.cron:0 0 3 * * ?}") // Runs daily at 3 AM by default
     public void cleanupExpiredTokens() {
-        refreshTokenRepository.deleteExpiredTokens(Instant.now());
+        // Only one replica purges, the others skip this run
+        Optional<String> lock = jobLock.tryAcquire(PURGE_JOB, purgeLockLease);
+        if (lock.isEmpty()) {
+            log.debug("Refresh token purge already running on another instance");
+            return;
+        }
+        try {
+            refreshTokenPurger.purge();
+        } finally {
+            jobLock.release(PURGE_JOB, lock.get());
+        }
+    }
+
+    @Scheduled(cron = "${app.user-stats.reconcile.cron:0 30 * * * ?}") // Hourly by default
+    public void reconcileUserStats() {
+        Optional<String> lock = jobLock.tryAcquire(STATS_RECONCILE_JOB, reconcileLockLease);
+        if (lock.isEmpty()) {
+            log.debug("User stats reconcile already running on another instance");
+            return;
+        }
+        try {
+            userStatsReconciler.reconcile();
+        } finally {
+            jobLock.release(STATS_RECONCILE_JOB, lock.get());
+        }
     }
 }
@@ -0,0 +1,151 @@
+package com.loopify.mainservice.schedule;
+
+import com.loopify.mainservice.repository.user.UserStatsRepository;
+import com.loopify.mainservice.service.user.UserStatsService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recounts follows for users in id-ordered batches and corrects counters that drifted. A correction is
+ * added as a delta to shard 0 instead of overwriting the shards, so follows committed while a batch runs
+ * are never lost. Stops after {@code max-runtime}; the last reconciled user id is kept in Redis and the next
+ * run resumes after it, starting from the first user again only once a pass has reached the end.
+ */
+@Component
+@Slf4j
+public class UserStatsReconciler {
+
+    // Written under the job lock, so only one replica moves it at a time
+    private static final String CURSOR_KEY = "user_stats_reconcile:cursor";
+
+    private final UserStatsRepository userStatsRepository;
+    private final UserStatsService userStatsService;
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter correctedCounter;
+    private final Timer runTimer;
+
+    @Value("${app.user-stats.reconcile.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.user-stats.reconcile.pause:100ms}")
+    private Duration pause;
+
+    @Value("${app.user-stats.reconcile.max-runtime:20m}")
+    private Duration maxRuntime;
+
+    public UserStatsReconciler(UserStatsRepository userStatsRepository, UserStatsService userStatsService,
+                               StringRedisTemplate redisTemplate, TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry) {
+        this.userStatsRepository = userStatsRepository;
+        this.userStatsService = userStatsService;
+        this.redisTemplate = redisTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.correctedCounter = meterRegistry.counter("user_stats.reconcile.corrected");
+        this.runTimer = meterRegistry.timer("user_stats.reconcile.duration");
+    }
+
+    /**
+     * @return number of users whose counters were corrected
+     */
+    public long reconcile() {
+        return runTimer.record(this::reconcileBatches);
+    }
+
+    private long reconcileBatches() {
+        long deadline = System.nanoTime() + maxRuntime.toNanos();
+        long afterId = readCursor();
+        long total = 0;
+        boolean passComplete = false;
+
+        if (afterId > 0) {
+            log.info("User stats reconcile resuming after user {}", afterId);
+        }
+        while (System.nanoTime() < deadline) {
+            long from = afterId;
+            // Counting and correcting in one transaction keeps the deltas relative to the snapshot they were read in
+            BatchResult batch = transactionTemplate.execute(status -> reconcileBatch(from));
+            if (batch == null || batch.size() == 0) {
+                passComplete = true;
+                break;
+            }
+            if (!batch.corrected().isEmpty()) {
+                userStatsService.evict(batch.corrected());
+                correctedCounter.increment(batch.corrected().size());
+                total += batch.corrected().size();
+            }
+            afterId = batch.lastUserId();
+
+            if (batch.size() < batchSize) {
+                passComplete = true;
+                break;
+            }
+            writeCursor(afterId);
+            if (!BatchPause.sleep(pause)) {
+                break;
+            }
+        }
+        if (passComplete) {
+            writeCursor(0);
+        } else if (System.nanoTime() >= deadline) {
+            log.warn("User stats reconcile hit its max runtime of {}, continuing after user {} next run",
+                    maxRuntime, afterId);
+        }
+        log.info("User stats reconcile corrected {} users", total);
+        return total;
+    }
+
+    private long readCursor() {
+        try {
+            String cursor = redisTemplate.opsForValue().get(CURSOR_KEY);
+            return cursor != null ? Long.parseLong(cursor) : 0;
+        } catch (Exception e) {
+            log.warn("Reading the user stats reconcile cursor failed, starting from the first user: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private void writeCursor(long afterId) {
+        try {
+            if (afterId == 0) {
+                redisTemplate.delete(CURSOR_KEY);
+            } else {
+                redisTemplate.opsForValue().set(CURSOR_KEY, String.valueOf(afterId));
+            }
+        } catch (Exception e) {
+            // The next run repeats batches that were already reconciled, which is harmless
+            log.warn("Saving the user stats reconcile cursor failed: {}", e.getMessage());
+        }
+    }
+
+    private BatchResult reconcileBatch(long afterId) {
+        List<Object[]> rows = userStatsRepository.findCountsForReconcile(afterId, batchSize);
+        List<Long> corrected = new ArrayList<>();
+        long lastUserId = afterId;
+        for (Object[] row : rows) {
+            long userId = ((Number) row[0]).longValue();
+            long followersDrift = ((Number) row[1]).longValue() - ((Number) row[3]).longValue();
+            long followingDrift = ((Number) row[2]).longValue() - ((Number) row[4]).longValue();
+            if (followersDrift != 0 || followingDrift != 0) {
+                log.debug("User {} counters drifted by {} followers, {} following", userId, followersDrift, followingDrift);
+                userStatsRepository.addCounts(userId, 0, followersDrift, followingDrift);
+                corrected.add(userId);
+            }
+            lastUserId = userId;
+        }
+        return new BatchResult(rows.size(), lastUserId, corrected);
+    }
+
+    private record BatchResult(int size, long lastUserId, List<Long> corrected) {
+    }
+}
@@ -0,0 +1,41 @@
+package com.loopify.mainservice.security;
+
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Revokes access tokens before they expire. The jti is stored in Redis for the rest of the token's lifetime
+ * and announced to the gateways, which add it to their local denylist filter.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AccessTokenRevocationService {
+
+    // Must match the gateway TokenRevocationService
+    public static final String REVOKED_KEY_PREFIX = "jwt:revoked:";
+    public static final String REVOCATION_CHANNEL = "jwt:revoked";
+
+    private final JwtService jwtService;
+    private final StringRedisTemplate redisTemplate;
+
+    public void revoke(String accessToken) {
+        Claims claims = jwtService.parseValidClaims(accessToken);
+        if (claims == null || claims.getId() == null || claims.getExpiration() == null) {
+            // Invalid, expired or issued before tokens carried a jti: nothing that still needs revoking
+            return;
+        }
+        long ttlMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+        if (ttlMs <= 0) {
+            return;
+        }
+        redisTemplate.opsForValue().set(REVOKED_KEY_PREFIX + claims.getId(), "1", Duration.ofMillis(ttlMs));
+        redisTemplate.convertAndSend(REVOCATION_CHANNEL, claims.getId());
+        log.debug("Access token revoked, jti: {}", claims.getId());
+    }
+}
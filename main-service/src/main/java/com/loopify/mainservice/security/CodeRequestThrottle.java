@@ -0,0 +1,52 @@
+package com.loopify.mainservice.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Sliding-window limit on verification code requests, per email and per client IP, checked and recorded
+ * in one script call. The IP limit is looser since several users can share an address.
+ */
+@Component
+@RequiredArgsConstructor
+public class CodeRequestThrottle {
+
+    private static final String EMAIL_KEY_PREFIX = "email_code_throttle:email:";
+    private static final String IP_KEY_PREFIX = "email_code_throttle:ip:";
+    private static final RedisScript<Long> THROTTLE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/email_code_throttle.lua"), Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${app.email-code.throttle.window:1h}")
+    private Duration window;
+
+    @Value("${app.email-code.throttle.max-per-email:5}")
+    private int maxPerEmail;
+
+    @Value("${app.email-code.throttle.max-per-ip:20}")
+    private int maxPerIp;
+
+    /**
+     * Records the request if both windows have room.
+     *
+     * @return {@link Duration#ZERO} if the request is allowed, otherwise how long until it would be
+     */
+    public Duration tryAcquire(String email, String clientIp) {
+        // Case variants of an address reach the same inbox
+        String emailKey = EMAIL_KEY_PREFIX + email.trim().toLowerCase(Locale.ROOT);
+        Long retryAfterMs = redisTemplate.execute(THROTTLE_SCRIPT, List.of(emailKey, IP_KEY_PREFIX + clientIp),
+                String.valueOf(window.toMillis()), String.valueOf(maxPerEmail), String.valueOf(maxPerIp),
+                UUID.randomUUID().toString());
+        return retryAfterMs == null || retryAfterMs <= 0 ? Duration.ZERO : Duration.ofMillis(retryAfterMs);
+    }
+}
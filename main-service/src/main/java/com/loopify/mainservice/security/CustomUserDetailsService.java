@@ -3,6 +3,7 @@ package com.loopify.mainservice.security;
 import com.loopify.mainservice.model.user.User;
 import com.loopify.mainservice.repository.user.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -16,10 +17,18 @@ import java.util.Date;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        return userDetailsCache.get(email, this::loadFromDatabase);
+    }
+
+    private CustomUserDetail loadFromDatabase(String email) {
         User user = userRepository.findByEmail(email).orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        if (!user.isAccountActive()) {
+            throw new DisabledException("User account is disabled: " + email);
+        }
         return CustomUserDetail.builder()
                 .id(user.getId())
                 .email(user.getEmail())
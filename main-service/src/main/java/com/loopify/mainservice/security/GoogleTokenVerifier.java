@@ -0,0 +1,84 @@
+package com.loopify.mainservice.security;
+
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
+import com.google.api.client.googleapis.auth.oauth2.GooglePublicKeysManager;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Verifies Google ID tokens with one shared transport and one cached set of Google signing keys.
+ * <p>
+ * The keys are fetched at startup and refreshed in the background, so a login normally verifies
+ * against keys already in memory. The certificate URL and accepted issuers are configurable, which lets
+ * tests point the verifier at a local stand-in issuer.
+ */
+@Component
+@Slf4j
+public class GoogleTokenVerifier {
+
+    @Value("${app.google.client-id}")
+    private String googleClientId;
+
+    @Value("${app.google.certs-url:https://www.googleapis.com/oauth2/v1/certs}")
+    private String certsUrl;
+
+    @Value("${app.google.issuers:accounts.google.com,https://accounts.google.com}")
+    private List<String> issuers;
+
+    private GooglePublicKeysManager publicKeysManager;
+    private GoogleIdTokenVerifier verifier;
+
+    @PostConstruct
+    void init() {
+        NetHttpTransport transport = new NetHttpTransport();
+        this.publicKeysManager = new GooglePublicKeysManager.Builder(transport, GsonFactory.getDefaultInstance())
+                .setPublicCertsEncodedUrl(certsUrl)
+                .build();
+        this.verifier = new GoogleIdTokenVerifier.Builder(publicKeysManager)
+                .setAudience(Collections.singletonList(googleClientId))
+                .setIssuers(issuers)
+                .build();
+        refreshKeys();
+    }
+
+    /**
+     * @return the verified payload, or null if the token is invalid, expired or cannot be checked
+     */
+    public GoogleIdToken.Payload verify(String idTokenString) {
+        try {
+            GoogleIdToken idToken = verifier.verify(idTokenString);
+            if (idToken != null) {
+                return idToken.getPayload();
+            }
+            log.error("Google ID Token verification failed (token invalid or expired).");
+            return null;
+        } catch (GeneralSecurityException | IOException | IllegalArgumentException e) {
+            log.error("Error verifying Google ID Token: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Ahead of the keys' cache expiry, so logins don't pay for the fetch
+    @Scheduled(fixedDelayString = "${app.google.keys-refresh-interval:PT1H}",
+            initialDelayString = "${app.google.keys-refresh-interval:PT1H}")
+    public void refreshKeys() {
+        try {
+            publicKeysManager.refresh();
+            log.debug("Google signing keys refreshed from {}", certsUrl);
+        } catch (GeneralSecurityException | IOException e) {
+            // Keep the current keys, verify() fetches on demand if they have expired
+            log.warn("Failed to refresh Google signing keys from {}: {}", certsUrl, e.getMessage());
+        }
+    }
+}
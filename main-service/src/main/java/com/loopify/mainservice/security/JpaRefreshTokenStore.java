@@ -0,0 +1,71 @@
+package com.loopify.mainservice.security;
+
+import com.loopify.mainservice.model.user.RefreshToken;
+import com.loopify.mainservice.model.user.User;
+import com.loopify.mainservice.repository.user.RefreshTokenRepository;
+import com.loopify.mainservice.repository.user.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Refresh tokens in the {@code refresh_tokens} table. Fallback for deployments without Redis,
+ * revoked and expired rows are purged by {@link com.loopify.mainservice.schedule.UserSchedule}.
+ */
+@RequiredArgsConstructor
+@Service
+@ConditionalOnProperty(name = "app.refresh-token.store", havingValue = "jpa")
+public class JpaRefreshTokenStore implements RefreshTokenStore {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+
+    @Value("${app.jwt.refresh-token-expiration-ms}")
+    private Long refreshTokenDurationMs;
+
+    @Override
+    @Transactional
+    public String issue(Long userId) {
+        // Reference only, the user was just loaded by the login flow
+        User user = userRepository.getReferenceById(userId);
+        refreshTokenRepository.revokeAllUserTokens(user);
+        return save(user).getToken();
+    }
+
+    @Override
+    @Transactional
+    public Optional<RotatedToken> rotate(String token) {
+        return refreshTokenRepository.findByToken(token)
+                .filter(current -> !current.getIsRevoked() && !current.isExpired())
+                .map(current -> {
+                    current.revoke();
+                    RefreshToken next = save(current.getUser());
+                    return new RotatedToken(current.getUser().getId(), next.getToken());
+                });
+    }
+
+    @Override
+    @Transactional
+    public Optional<Long> revokeAll(String token) {
+        return refreshTokenRepository.findByToken(token)
+                .map(current -> {
+                    refreshTokenRepository.revokeAllUserTokens(current.getUser());
+                    return current.getUser().getId();
+                });
+    }
+
+    private RefreshToken save(User user) {
+        RefreshToken refreshToken = RefreshToken.builder()
+                .user(user)
+                .token(UUID.randomUUID().toString())
+                .expiresAt(Instant.now().plusMillis(refreshTokenDurationMs))
+                .build();
+        return refreshTokenRepository.save(refreshToken);
+    }
+}
@@ -2,6 +2,7 @@ package com.loopify.mainservice.security;
 
 import com.loopify.mainservice.model.user.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -14,6 +15,7 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
@@ -26,6 +28,9 @@ public class JwtService {
     @Value("${app.jwt.access-token-expiration-ms}")
     private long jwtExpirationInMs;
 
+    // Claim read by the gateway and forwarded as X-User-Id, so downstream services don't look the user up
+    public static final String USER_ID_CLAIM = "uid";
+
     public String generateToken(User user) {
         return generateToken(new HashMap<>(), user);
     }
@@ -34,16 +39,34 @@ public class JwtService {
             Map<String, Object> extractClaims,
             User user
     ) {
+        Map<String, Object> claims = new HashMap<>(extractClaims);
+        claims.put(USER_ID_CLAIM, user.getId());
         return Jwts
                 .builder()
-                .setClaims(extractClaims)
+                .setClaims(claims)
                 .setSubject(user.getEmail())
+                .setId(UUID.randomUUID().toString()) // jti, the handle used to revoke this token on logout
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationInMs))
                 .signWith(getSignInKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verifies the token and returns its claims, or null if it is invalid or already expired.
+     */
+    public Claims parseValidClaims(String token) {
+        try {
+            return Jwts.parserBuilder()
+                    .setSigningKey(getSignInKey())
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     private Key getSignInKey() {
         byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
         return Keys.hmacShaKeyFor(keyBytes);
@@ -0,0 +1,92 @@
+package com.loopify.mainservice.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Refresh tokens in Redis, each operation is one script call.
+ * <p>
+ * Only a SHA-256 of the token is stored ({@code refresh_token:{hash}} -> user id) and it expires through the
+ * key TTL, so nothing has to be purged. {@code refresh_token:user:{id}} holds the hashes of a user's live
+ * tokens for revoke-all.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.refresh-token.store", havingValue = "redis", matchIfMissing = true)
+public class RedisRefreshTokenStore implements RefreshTokenStore {
+
+    private static final String TOKEN_KEY_PREFIX = "refresh_token:";
+    private static final String USER_KEY_PREFIX = "refresh_token:user:";
+    private static final int TOKEN_BYTES = 32;
+
+    private static final RedisScript<Long> ISSUE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/refresh_token_issue.lua"), Long.class);
+    private static final RedisScript<String> ROTATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/refresh_token_rotate.lua"), String.class);
+    private static final RedisScript<String> REVOKE_ALL_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/refresh_token_revoke_all.lua"), String.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Value("${app.jwt.refresh-token-expiration-ms}")
+    private Long refreshTokenDurationMs;
+
+    @Override
+    public String issue(Long userId) {
+        String token = newToken();
+        redisTemplate.execute(ISSUE_SCRIPT, List.of(USER_KEY_PREFIX + userId),
+                TOKEN_KEY_PREFIX, hash(token), String.valueOf(userId), String.valueOf(refreshTokenDurationMs));
+        return token;
+    }
+
+    @Override
+    public Optional<RotatedToken> rotate(String token) {
+        String currentHash = hash(token);
+        String next = newToken();
+        String userId = redisTemplate.execute(ROTATE_SCRIPT, List.of(TOKEN_KEY_PREFIX + currentHash),
+                TOKEN_KEY_PREFIX, USER_KEY_PREFIX, currentHash, hash(next), String.valueOf(refreshTokenDurationMs));
+        if (userId == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new RotatedToken(Long.valueOf(userId), next));
+    }
+
+    @Override
+    public Optional<Long> revokeAll(String token) {
+        String userId = redisTemplate.execute(REVOKE_ALL_SCRIPT, List.of(TOKEN_KEY_PREFIX + hash(token)),
+                TOKEN_KEY_PREFIX, USER_KEY_PREFIX);
+        return Optional.ofNullable(userId).map(Long::valueOf);
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,66 +0,0 @@
-package com.loopify.mainservice.security;
-
-import com.loopify.mainservice.exception.AppException;
-import com.loopify.mainservice.model.user.RefreshToken;
-import com.loopify.mainservice.model.user.User;
-import com.loopify.mainservice.repository.user.RefreshTokenRepository;
-import com.loopify.mainservice.repository.user.UserRepository;
-import lombok.Getter;
-import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
-import java.time.Instant;
-import java.util.Optional;
-import java.util.UUID;
-
-@RequiredArgsConstructor
-@Service
-public class RefreshTokenService {
-
-    private final RefreshTokenRepository refreshTokenRepository;
-    private final UserRepository userRepository;
-
-    // Getter for refreshTokenDurationMs to use in cookie
-    @Getter
-    @Value("${app.jwt.refresh-token-expiration-ms}")
-    private Long refreshTokenDurationMs;
-
-    @Transactional
-    public RefreshToken createRefreshToken(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
-
-        revokeAllUserTokens(user);
-
-        RefreshToken refreshToken = RefreshToken.builder()
-                .user(user)
-                .token(UUID.randomUUID().toString())
-                .expiresAt(Instant.now().plusMillis(refreshTokenDurationMs))
-                .build();
-
-        return refreshTokenRepository.save(refreshToken);
-    }
-
-    @Transactional(readOnly = true)
-    public Optional<RefreshToken> findByToken(String token) {
-        return refreshTokenRepository.findByToken(token);
-    }
-
-    @Transactional
-    public RefreshToken verifyExpiration(RefreshToken token) {
-        if (token.getExpiresAt().compareTo(Instant.now()) < 0) {
-            refreshTokenRepository.delete(token);
-            throw new RuntimeException("Refresh token was expired. Please make a new signin request");
-        }
-        return token;
-    }
-
-    @Transactional
-    public void revokeAllUserTokens(User user) {
-        // Revoke all existing tokens for this user
-        refreshTokenRepository.revokeAllUserTokens(user);
-    }
-
-}
@@ -0,0 +1,34 @@
+package com.loopify.mainservice.security;
+
+import java.util.Optional;
+
+/**
+ * Storage for refresh tokens. Tokens are single-use: every refresh consumes the presented token and
+ * issues its replacement. Implementations are chosen with {@code app.refresh-token.store}.
+ */
+public interface RefreshTokenStore {
+
+    /**
+     * Revokes all tokens of the user and issues a new one.
+     *
+     * @return the new token to hand to the client
+     */
+    String issue(Long userId);
+
+    /**
+     * Consumes a valid token and issues its replacement.
+     *
+     * @return the owner and the new token, or empty if the token is unknown, expired, revoked or already used
+     */
+    Optional<RotatedToken> rotate(String token);
+
+    /**
+     * Revokes all tokens of the user owning the given token.
+     *
+     * @return the owner, or empty if the token is unknown
+     */
+    Optional<Long> revokeAll(String token);
+
+    record RotatedToken(Long userId, String token) {
+    }
+}
@@ -0,0 +1,54 @@
+package com.loopify.mainservice.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of email -> {@link CustomUserDetail} in front of the per-request user lookup.
+ * Only the database lookup for tokens without a user id goes through it, tokens carrying one are trusted
+ * from the gateway headers. Entries expire after a TTL; publishing an email on {@link #INVALIDATION_CHANNEL},
+ * e.g. after deactivating the account, evicts it on every main-service and chat-service replica.
+ */
+@Component
+@Slf4j
+public class UserDetailsCache implements MessageListener {
+
+    // Shared with chat-service, which keeps its own copy of the cache
+    public static final String INVALIDATION_CHANNEL = "user-details:invalidate";
+
+    private final Cache<String, CustomUserDetail> cache;
+
+    public UserDetailsCache(MeterRegistry meterRegistry,
+                            @Value("${app.user-details-cache.ttl:5m}") Duration ttl,
+                            @Value("${app.user-details-cache.max-size:10000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // Exposes cache.gets{result=hit|miss}, cache.evictions and cache.size
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "user-details");
+    }
+
+    public CustomUserDetail get(String email, Function<String, CustomUserDetail> loader) {
+        return cache.get(email, loader);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String email = new String(message.getBody(), StandardCharsets.UTF_8);
+        log.debug("Evicting cached user details for {}", email);
+        cache.invalidate(email);
+    }
+}
@@ -0,0 +1,61 @@
+package com.loopify.mainservice.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Email login codes in Redis. Checking a code is one script call that compares, consumes the code on a
+ * match and counts failed attempts, so a code can neither be used twice nor guessed indefinitely.
+ */
+@Component
+@RequiredArgsConstructor
+public class VerificationCodeStore {
+
+    private static final String CODE_KEY_PREFIX = "email_code:";
+    private static final String ATTEMPTS_KEY_PREFIX = "email_code_attempts:";
+    private static final RedisScript<Long> VERIFY_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/email_code_verify.lua"), Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${app.email-code.max-attempts:5}")
+    private int maxAttempts;
+
+    public enum Result {
+        VALID,
+        INVALID,
+        // Never requested, expired or already used
+        MISSING,
+        // Too many failed attempts, the code has been discarded
+        LOCKED
+    }
+
+    /**
+     * Stores a new code for the email, replacing any previous one and its failed attempts.
+     */
+    public void store(String email, String code, Duration ttl) {
+        redisTemplate.opsForValue().set(CODE_KEY_PREFIX + email, code, ttl);
+        redisTemplate.delete(ATTEMPTS_KEY_PREFIX + email);
+    }
+
+    public Result verify(String email, String code) {
+        Long result = redisTemplate.execute(VERIFY_SCRIPT,
+                List.of(CODE_KEY_PREFIX + email, ATTEMPTS_KEY_PREFIX + email), code, String.valueOf(maxAttempts));
+        if (result == null) {
+            return Result.MISSING;
+        }
+        return switch (result.intValue()) {
+            case 1 -> Result.VALID;
+            case 0 -> Result.INVALID;
+            case -2 -> Result.LOCKED;
+            default -> Result.MISSING;
+        };
+    }
+}
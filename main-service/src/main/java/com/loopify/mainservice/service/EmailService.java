@@ -1,74 +1,149 @@
 package com.loopify.mainservice.service;
 
-import jakarta.ws.rs.client.Client;
-import jakarta.ws.rs.client.ClientBuilder;
-import jakarta.ws.rs.client.Entity;
-import jakarta.ws.rs.client.WebTarget;
-import jakarta.ws.rs.core.Form;
-import jakarta.ws.rs.core.MediaType;
-import jakarta.ws.rs.core.Response;
+import com.loopify.mainservice.exception.AppException;
+import com.loopify.mainservice.service.email.EmailDeliveryException;
+import com.loopify.mainservice.service.email.EmailMessage;
+import com.loopify.mainservice.service.email.EmailTransport;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queues outgoing emails and delivers them on a small worker pool, so request threads return as soon as
+ * the message is queued. Retryable failures are re-queued with exponential backoff and jitter; the queue
+ * is bounded and a full queue is reported to the caller instead of piling up.
+ */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class EmailService {
 
-    @Value("${app.mailgun.api-key}")
-    private String mailgunApiKey;
+    private final EmailTransport emailTransport;
+    private final MeterRegistry meterRegistry;
 
-    @Value("${app.mailgun.domain}")
-    private String mailgunDomain;
+    @Value("${app.email.workers:4}")
+    private int workers;
 
-    @Value("${app.mailgun.from-email}")
-    private String fromEmail;
+    @Value("${app.email.queue-capacity:1000}")
+    private int queueCapacity;
 
-    @Value("${app.mailgun.isSendEmail}")
-    private boolean sendEmailsEnabled;
+    @Value("${app.email.max-attempts:4}")
+    private int maxAttempts;
 
-    public void sendVerificationCode(String toEmail, String code) {
-        // Simple flag for local dev - can be enhanced with profiles
-        // Set to false for local testing without sending
-        if (!sendEmailsEnabled) {
-            // todo : 测试无法发送邮件，暂时显示code
-            log.warn("Email sending disabled. Verification code for {}: {}", toEmail, code);
-            return; // Skip sending in local dev if disabled
-        }
+    @Value("${app.email.initial-backoff:500ms}")
+    private Duration initialBackoff;
+
+    @Value("${app.email.max-backoff:10s}")
+    private Duration maxBackoff;
+
+    private ThreadPoolExecutor dispatchExecutor;
+    // Only holds retries until their backoff has passed, the sending itself happens on the dispatch pool
+    private ScheduledExecutorService retryScheduler;
 
-        Client client = ClientBuilder.newClient();
-        client.register(HttpAuthenticationFeature.basic("api", mailgunApiKey));
+    private Counter sentCounter;
+    private Counter failedCounter;
+    private Counter rejectedCounter;
 
-        WebTarget target = client.target("https://api.mailgun.net/v3")
-                .path(mailgunDomain)
-                .path("messages");
+    @PostConstruct
+    void init() {
+        this.dispatchExecutor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("email-dispatch-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.dispatchExecutor.allowCoreThreadTimeOut(true);
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("email-retry-"));
+
+        this.sentCounter = meterRegistry.counter("email.dispatch", "result", "sent");
+        this.failedCounter = meterRegistry.counter("email.dispatch", "result", "failed");
+        this.rejectedCounter = meterRegistry.counter("email.dispatch", "result", "rejected");
+        Gauge.builder("email.dispatch.queue.size", dispatchExecutor, e -> e.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        retryScheduler.shutdownNow();
+        // Let already queued codes go out, users are waiting for them
+        dispatchExecutor.shutdown();
+        if (!dispatchExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Email dispatch did not drain in time, {} emails dropped", dispatchExecutor.getQueue().size());
+            dispatchExecutor.shutdownNow();
+        }
+    }
 
-        Form form = new Form();
-        form.param("from", fromEmail);
-        form.param("to", toEmail);
-        form.param("subject", "Your Verification Code");
-        form.param("text", "Your verification code is: " + code + "\nIt expires in 5 minutes.");
+    /**
+     * Queues the verification code email and returns immediately.
+     *
+     * @throws AppException if the dispatch queue is full
+     */
+    public void sendVerificationCode(String toEmail, String code) {
+        EmailMessage message = new EmailMessage(toEmail, "Your Verification Code",
+                "Your verification code is: " + code + "\nIt expires in 5 minutes.");
+        try {
+            dispatchExecutor.execute(() -> deliver(message, 1));
+            log.info("Queued verification code email to {}", toEmail);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.error("Email dispatch queue is full, dropping verification code email to {}", toEmail);
+            throw new AppException("Email service is busy, please try again shortly.");
+        }
+    }
 
-        log.info("Sending verification code email to {}", toEmail);
+    private void deliver(EmailMessage message, int attempt) {
         try {
-            Response response = target.request(MediaType.APPLICATION_FORM_URLENCODED)
-                    .post(Entity.form(form));
-
-            if (response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
-                log.info("Verification email sent successfully to {}. Status: {}", toEmail, response.getStatus());
-            } else {
-                String responseBody = response.readEntity(String.class);
-                log.error("Failed to send verification email to {}. Status: {}, Response: {}",
-                        toEmail, response.getStatus(), responseBody);
-                // Handle failure appropriately - maybe throw exception
+            emailTransport.send(message);
+            sentCounter.increment();
+        } catch (EmailDeliveryException e) {
+            if (!e.isRetryable() || attempt >= maxAttempts) {
+                failedCounter.increment();
+                log.error("Failed to send email to {} after {} attempt(s): {}", message.to(), attempt, e.getMessage());
+                return;
             }
-            response.close();
+            long delayMs = backoffMillis(attempt);
+            log.warn("Sending email to {} failed (attempt {}), retrying in {} ms: {}",
+                    message.to(), attempt, delayMs, e.getMessage());
+            scheduleRetry(message, attempt + 1, delayMs);
         } catch (Exception e) {
-            log.error("Exception while sending verification email to {}: {}", toEmail, e.getMessage(), e);
-            // Handle failure
-        } finally {
-            client.close();
+            failedCounter.increment();
+            log.error("Exception while sending email to {}: {}", message.to(), e.getMessage(), e);
+        }
+    }
+
+    private void scheduleRetry(EmailMessage message, int attempt, long delayMs) {
+        try {
+            retryScheduler.schedule(() -> {
+                try {
+                    dispatchExecutor.execute(() -> deliver(message, attempt));
+                } catch (RejectedExecutionException e) {
+                    failedCounter.increment();
+                    log.error("Email dispatch queue is full, giving up on email to {}", message.to());
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            failedCounter.increment();
         }
     }
+
+    // Exponential with jitter, so retries after a provider hiccup don't arrive in lockstep
+    private long backoffMillis(int attempt) {
+        long exponential = initialBackoff.toMillis() << Math.min(attempt - 1, 20);
+        long capped = Math.min(exponential, maxBackoff.toMillis());
+        return ThreadLocalRandom.current().nextLong(capped / 2, capped + 1);
+    }
 }
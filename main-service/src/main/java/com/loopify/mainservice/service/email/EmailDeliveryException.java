@@ -0,0 +1,24 @@
+package com.loopify.mainservice.service.email;
+
+/**
+ * Thrown by an {@link EmailTransport} when a message was not accepted. Retryable failures
+ * (timeouts, 429, 5xx) are tried again by {@link com.loopify.mainservice.service.EmailService}.
+ */
+public class EmailDeliveryException extends Exception {
+
+    private final boolean retryable;
+
+    public EmailDeliveryException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+
+    public EmailDeliveryException(String message, Throwable cause) {
+        super(message, cause);
+        this.retryable = true;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,4 @@
+package com.loopify.mainservice.service.email;
+
+public record EmailMessage(String to, String subject, String text) {
+}
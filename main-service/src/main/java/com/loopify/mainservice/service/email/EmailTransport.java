@@ -0,0 +1,9 @@
+package com.loopify.mainservice.service.email;
+
+/**
+ * Delivers a single email. Called from the email dispatch workers, never on a request thread.
+ */
+public interface EmailTransport {
+
+    void send(EmailMessage message) throws EmailDeliveryException;
+}
@@ -0,0 +1,36 @@
+package com.loopify.mainservice.service.email;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Local stand-in used when {@code app.mailgun.isSendEmail} is false: logs the message instead of sending it
+ * and keeps the last messages so tests can read the verification code back.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.mailgun.isSendEmail", havingValue = "false", matchIfMissing = true)
+public class LoggingEmailTransport implements EmailTransport {
+
+    private static final int RETAINED_MESSAGES = 100;
+
+    private final List<EmailMessage> sent = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void send(EmailMessage message) {
+        // todo : 测试无法发送邮件，暂时显示code
+        log.warn("Email sending disabled. Email for {}: {}", message.to(), message.text());
+        sent.add(message);
+        if (sent.size() > RETAINED_MESSAGES) {
+            sent.remove(0);
+        }
+    }
+
+    public List<EmailMessage> getSentMessages() {
+        return List.copyOf(sent);
+    }
+}
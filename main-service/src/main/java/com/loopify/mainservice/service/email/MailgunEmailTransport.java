@@ -0,0 +1,95 @@
+package com.loopify.mainservice.service.email;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.Form;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends through the Mailgun HTTP API with one client for the lifetime of the application,
+ * so connections are kept alive and reused between messages.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.mailgun.isSendEmail", havingValue = "true")
+public class MailgunEmailTransport implements EmailTransport {
+
+    @Value("${app.mailgun.api-key}")
+    private String mailgunApiKey;
+
+    @Value("${app.mailgun.domain}")
+    private String mailgunDomain;
+
+    @Value("${app.mailgun.from-email}")
+    private String fromEmail;
+
+    @Value("${app.mailgun.base-url:https://api.mailgun.net/v3}")
+    private String baseUrl;
+
+    @Value("${app.mailgun.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${app.mailgun.read-timeout-ms:5000}")
+    private int readTimeoutMs;
+
+    private Client client;
+    private WebTarget messagesTarget;
+
+    @PostConstruct
+    void init() {
+        // Client and target are thread-safe, built once instead of per email
+        this.client = ClientBuilder.newClient()
+                .property(ClientProperties.CONNECT_TIMEOUT, connectTimeoutMs)
+                .property(ClientProperties.READ_TIMEOUT, readTimeoutMs)
+                .register(HttpAuthenticationFeature.basic("api", mailgunApiKey));
+        this.messagesTarget = client.target(baseUrl)
+                .path(mailgunDomain)
+                .path("messages");
+    }
+
+    @PreDestroy
+    void close() {
+        client.close();
+    }
+
+    @Override
+    public void send(EmailMessage message) throws EmailDeliveryException {
+        Form form = new Form();
+        form.param("from", fromEmail);
+        form.param("to", message.to());
+        form.param("subject", message.subject());
+        form.param("text", message.text());
+
+        Response response;
+        try {
+            response = messagesTarget.request(MediaType.APPLICATION_FORM_URLENCODED)
+                    .post(Entity.form(form));
+        } catch (Exception e) {
+            throw new EmailDeliveryException("Mailgun request failed: " + e.getMessage(), e);
+        }
+        try {
+            if (response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
+                log.info("Email sent successfully to {}. Status: {}", message.to(), response.getStatus());
+                return;
+            }
+            String responseBody = response.readEntity(String.class);
+            // Throttling and server errors are worth another attempt, other client errors are not
+            boolean retryable = response.getStatus() == 429
+                    || response.getStatusInfo().getFamily() == Response.Status.Family.SERVER_ERROR;
+            throw new EmailDeliveryException("Mailgun returned " + response.getStatus() + ": " + responseBody, retryable);
+        } finally {
+            response.close();
+        }
+    }
+}
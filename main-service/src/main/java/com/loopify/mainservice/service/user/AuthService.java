@@ -4,7 +4,10 @@ import com.loopify.mainservice.dto.response.user.AuthResponse;
 
 public interface AuthService {
 
-    void requestEmailCode(String email);
+    /**
+     * Sends a login code to the email, unless the email or client IP has requested too many recently.
+     */
+    void requestEmailCode(String email, String clientIp);
 
     AuthResponse verifyEmailCode(String email, String code);
 
@@ -12,5 +15,8 @@ public interface AuthService {
 
     AuthResponse refreshToken(String requestRefreshToken);
 
-    void logout(String refreshToken);
+    /**
+     * Revokes the user's refresh tokens and, if given, the access token used for the request.
+     */
+    void logout(String refreshToken, String accessToken);
 }
@@ -0,0 +1,8 @@
+package com.loopify.mainservice.service.user;
+
+/**
+ * Published inside the transaction that adds or removes a follow. Listeners that maintain caches derived
+ * from the follow graph handle it after commit.
+ */
+public record FollowChangedEvent(Long followerId, Long followingId, boolean followed) {
+}
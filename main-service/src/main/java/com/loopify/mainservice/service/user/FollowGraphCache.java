@@ -0,0 +1,302 @@
+package com.loopify.mainservice.service.user;
+
+import com.loopify.mainservice.dto.user.FollowEdge;
+import com.loopify.mainservice.repository.user.UserFollowsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Follow graph in Redis: per user a sorted set of followers and one of followed users, scored by follow
+ * time in epoch ms, used for membership checks and first list pages.
+ * <p>
+ * Sets are loaded from the database on first use and then kept up to date after each committed follow or
+ * unfollow. Each set has a state key: {@code complete} (holds every edge), {@code partial} (holds only the
+ * newest {@code max-set-size} edges, which is how accounts with huge follower counts are bounded) or
+ * {@code loading:<token>} while a load runs. A follow change during a load cancels it, so a load can never
+ * store edges older than what was committed. Everything expires after {@code ttl}; sets of inactive users
+ * simply age out.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FollowGraphCache {
+
+    private static final String KEY_PREFIX = "follow_graph:";
+    private static final String STATE_SUFFIX = ":state";
+    private static final String LOADING_PREFIX = "loading:";
+
+    private static final RedisScript<Long> LOAD_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/follow_graph_load.lua"), Long.class);
+    private static final RedisScript<Long> UPDATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/follow_graph_update.lua"), Long.class);
+    private static final RedisScript<Long> CONTAINS_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/follow_graph_contains.lua"), Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CONTAINS_MANY_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/follow_graph_contains_many.lua"), List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> PAGE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/follow_graph_page.lua"), List.class);
+
+    // Script results for "can't tell" and "not cached, nobody loading"
+    private static final long UNKNOWN = -1;
+    private static final long NOT_CACHED = -2;
+
+    private final StringRedisTemplate redisTemplate;
+    private final UserFollowsRepository userFollowsRepository;
+
+    @Value("${app.follow-graph.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.follow-graph.max-set-size:5000}")
+    private int maxSetSize;
+
+    @Value("${app.follow-graph.ttl:30m}")
+    private Duration ttl;
+
+    @Value("${app.follow-graph.load-timeout:5s}")
+    private Duration loadTimeout;
+
+    // Cached scores are taken when the follow is committed, the stored follow time can differ by rounding
+    @Value("${app.follow-graph.score-tolerance:3s}")
+    private Duration scoreTolerance;
+
+    @Value("${app.follow-graph.max-page-candidates:500}")
+    private int maxPageCandidates;
+
+    public enum Direction {
+        FOLLOWERS("followers:"),
+        FOLLOWING("following:");
+
+        private final String keyPart;
+
+        Direction(String keyPart) {
+            this.keyPart = keyPart;
+        }
+    }
+
+    /**
+     * Candidate user ids for the first page of a list and the number of cached entries. The ids cover the
+     * page but may include a few more; the caller orders them by the stored follow time.
+     */
+    public record FirstPage(List<Long> userIds, long total) {
+    }
+
+    /**
+     * Result of a batch membership check: users known to be followed and users the cache can't tell about.
+     */
+    public record Membership(Set<Long> followed, List<Long> unknown) {
+    }
+
+    private record Loaded(List<FollowEdge> edges, boolean complete) {
+    }
+
+    /**
+     * @return whether the follow exists, or null if the cache can't tell and the database must be asked
+     */
+    public Boolean isFollowing(Long followerId, Long followingId) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            Long result = redisTemplate.execute(CONTAINS_SCRIPT,
+                    List.of(setKey(Direction.FOLLOWING, followerId), stateKey(Direction.FOLLOWING, followerId)),
+                    String.valueOf(followingId));
+            if (result == null || result == UNKNOWN) {
+                return null;
+            }
+            if (result != NOT_CACHED) {
+                return result == 1;
+            }
+            Loaded loaded = load(Direction.FOLLOWING, followerId);
+            if (loaded == null) {
+                return null;
+            }
+            if (loaded.edges().stream().anyMatch(edge -> edge.userId().equals(followingId))) {
+                return true;
+            }
+            return loaded.complete() ? false : null;
+        } catch (Exception e) {
+            log.warn("Follow graph lookup {} -> {} failed: {}", followerId, followingId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Checks which of the given users the follower follows, with a single script call.
+     *
+     * @return the known answers, or null if the cache can't serve the lookup and the database must be asked
+     */
+    public Membership followedAmong(Long followerId, List<Long> userIds) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            String[] members = userIds.stream().map(String::valueOf).toArray(String[]::new);
+            List<?> result = redisTemplate.execute(CONTAINS_MANY_SCRIPT,
+                    List.of(setKey(Direction.FOLLOWING, followerId), stateKey(Direction.FOLLOWING, followerId)),
+                    (Object[]) members);
+            if (isStatus(result, NOT_CACHED)) {
+                Loaded loaded = load(Direction.FOLLOWING, followerId);
+                return loaded == null ? null : membership(loaded, userIds);
+            }
+            if (result == null || result.size() != userIds.size() + 1) {
+                return null;
+            }
+            boolean complete = ((Number) result.get(0)).longValue() == 1;
+            Set<Long> followed = new HashSet<>();
+            List<Long> unknown = new ArrayList<>();
+            for (int i = 0; i < userIds.size(); i++) {
+                if (((Number) result.get(i + 1)).longValue() == 1) {
+                    followed.add(userIds.get(i));
+                } else if (!complete) {
+                    unknown.add(userIds.get(i));
+                }
+            }
+            return new Membership(followed, unknown);
+        } catch (Exception e) {
+            log.warn("Follow graph batch lookup for {} failed: {}", followerId, e.getMessage());
+            return null;
+        }
+    }
+
+    private static Membership membership(Loaded loaded, Collection<Long> userIds) {
+        Set<Long> loadedIds = new HashSet<>(loaded.edges().size() * 2);
+        loaded.edges().forEach(edge -> loadedIds.add(edge.userId()));
+        Set<Long> followed = new HashSet<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long userId : userIds) {
+            if (loadedIds.contains(userId)) {
+                followed.add(userId);
+            } else if (!loaded.complete()) {
+                unknown.add(userId);
+            }
+        }
+        return new Membership(followed, unknown);
+    }
+
+    /**
+     * @return candidates for the first page, or null if the cache can't serve it
+     */
+    public FirstPage firstPage(Direction direction, Long userId, int size) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            List<?> result = page(direction, userId, size);
+            if (isStatus(result, NOT_CACHED)) {
+                if (load(direction, userId) == null) {
+                    return null;
+                }
+                result = page(direction, userId, size);
+            }
+            if (result == null || result.isEmpty() || ((Number) result.get(0)).longValue() < 0) {
+                return null;
+            }
+            List<Long> userIds = new ArrayList<>(result.size() - 1);
+            for (int i = 1; i < result.size(); i++) {
+                userIds.add(Long.valueOf(result.get(i).toString()));
+            }
+            return new FirstPage(userIds, ((Number) result.get(0)).longValue());
+        } catch (Exception e) {
+            log.warn("Follow graph page for {} of user {} failed: {}", direction, userId, e.getMessage());
+            return null;
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onFollowChanged(FollowChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            redisTemplate.execute(UPDATE_SCRIPT,
+                    List.of(setKey(Direction.FOLLOWING, event.followerId()), stateKey(Direction.FOLLOWING, event.followerId()),
+                            setKey(Direction.FOLLOWERS, event.followingId()), stateKey(Direction.FOLLOWERS, event.followingId())),
+                    event.followed() ? "1" : "0", String.valueOf(event.followerId()), String.valueOf(event.followingId()),
+                    String.valueOf(System.currentTimeMillis()), String.valueOf(maxSetSize));
+        } catch (Exception e) {
+            // The sets would miss this change, drop them so they are reloaded
+            log.warn("Updating follow graph for {} -> {} failed: {}", event.followerId(), event.followingId(), e.getMessage());
+            try {
+                redisTemplate.delete(List.of(stateKey(Direction.FOLLOWING, event.followerId()),
+                        stateKey(Direction.FOLLOWERS, event.followingId())));
+            } catch (Exception ignored) {
+                // Redis is down, the sets expire on their own
+            }
+        }
+    }
+
+    private List<?> page(Direction direction, Long userId, int size) {
+        return redisTemplate.execute(PAGE_SCRIPT, List.of(setKey(direction, userId), stateKey(direction, userId)),
+                String.valueOf(size), String.valueOf(scoreTolerance.toMillis()), String.valueOf(maxPageCandidates));
+    }
+
+    /**
+     * Loads the newest edges from the database into the cache.
+     *
+     * @return the loaded edges, or null if another request is already loading this set
+     */
+    private Loaded load(Direction direction, Long userId) {
+        String token = UUID.randomUUID().toString();
+        String stateKey = stateKey(direction, userId);
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(stateKey, LOADING_PREFIX + token, loadTimeout))) {
+            return null;
+        }
+        Limit limit = Limit.of(maxSetSize + 1);
+        List<FollowEdge> edges = direction == Direction.FOLLOWERS
+                ? userFollowsRepository.findFollowerEdges(userId, limit)
+                : userFollowsRepository.findFollowingEdges(userId, limit);
+        boolean complete = edges.size() <= maxSetSize;
+        List<FollowEdge> kept = complete ? edges : edges.subList(0, maxSetSize);
+
+        List<String> args = new ArrayList<>(3 + kept.size() * 2);
+        args.add(token);
+        args.add(complete ? "complete" : "partial");
+        args.add(String.valueOf(ttl.toMillis()));
+        for (FollowEdge edge : kept) {
+            args.add(String.valueOf(toEpochMilli(edge.createdAt())));
+            args.add(String.valueOf(edge.userId()));
+        }
+        Long stored = redisTemplate.execute(LOAD_SCRIPT, List.of(setKey(direction, userId), stateKey), args.toArray());
+        if (stored == null || stored == 0) {
+            log.debug("Follow graph load for {} of user {} was invalidated by a concurrent change", direction, userId);
+        }
+        // Read just now, good enough to answer the current request either way
+        return new Loaded(kept, complete);
+    }
+
+    private static boolean isStatus(List<?> result, long status) {
+        return result != null && result.size() == 1 && ((Number) result.get(0)).longValue() == status;
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static String setKey(Direction direction, Long userId) {
+        return KEY_PREFIX + direction.keyPart + userId;
+    }
+
+    private static String stateKey(Direction direction, Long userId) {
+        return setKey(direction, userId) + STATE_SUFFIX;
+    }
+}
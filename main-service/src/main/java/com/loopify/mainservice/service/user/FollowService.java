@@ -1,11 +1,15 @@
 package com.loopify.mainservice.service.user;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.loopify.mainservice.dto.response.CursorPage;
+import com.loopify.mainservice.dto.response.user.FollowSuggestionsResponse;
+import com.loopify.mainservice.dto.user.FollowOutcome;
 import com.loopify.mainservice.dto.user.UserFollowDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.Map;
 
 public interface FollowService {
 
@@ -13,15 +17,65 @@ public interface FollowService {
 
     boolean unfollowUser(Long followerId, Long followingId);
 
+    /**
+     * Follows several users in one transaction, skipping unknown and already followed ones.
+     *
+     * @return the outcome per target, in request order without duplicates
+     * @throws com.loopify.mainservice.exception.AppException if the follower doesn't exist
+     */
+    Map<Long, FollowOutcome> followUsers(Long followerId, List<Long> followingIds) throws JsonProcessingException;
+
+    /**
+     * Unfollows several users in one transaction.
+     *
+     * @return the outcome per target, in request order without duplicates
+     */
+    Map<Long, FollowOutcome> unfollowUsers(Long followerId, List<Long> followingIds);
+
     Page<UserFollowDto> getFollowers(Long userId, Pageable pageable);
 
     Page<UserFollowDto> getFollowing(Long userId, Pageable pageable);
 
+    /**
+     * Followers newest first, continuing after the given cursor (null for the first page).
+     *
+     * @throws com.loopify.mainservice.exception.AppException if the cursor is malformed
+     */
+    CursorPage<UserFollowDto> getFollowers(Long userId, String cursor, int size);
+
+    /**
+     * Followed users newest first, continuing after the given cursor (null for the first page).
+     *
+     * @throws com.loopify.mainservice.exception.AppException if the cursor is malformed
+     */
+    CursorPage<UserFollowDto> getFollowing(Long userId, String cursor, int size);
+
     long countFollowers(Long userId);
 
     long countFollowing(Long userId);
 
     boolean isFollowing(Long followerId, Long followingId);
 
+    /**
+     * Follow status of the follower towards each of the given users, in request order without duplicates.
+     */
+    Map<Long, Boolean> isFollowing(Long followerId, List<Long> followingIds);
+
     List<Long> getMutualFollowers(Long userId1, Long userId2);
+
+    /**
+     * Common followers in ascending id order, continuing after the given cursor (null for the first page).
+     *
+     * @throws com.loopify.mainservice.exception.AppException if the cursor is malformed
+     */
+    CursorPage<Long> getMutualFollowers(Long userId1, Long userId2, String cursor, int size);
+
+    long countMutualFollowers(Long userId1, Long userId2);
+
+    /**
+     * Users followed by the users the given user follows, most shared connections first.
+     *
+     * @return the suggestions, or null while the follow graph index is not loaded
+     */
+    FollowSuggestionsResponse getSuggestions(Long userId, int limit);
 }
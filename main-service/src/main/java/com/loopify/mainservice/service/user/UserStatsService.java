@@ -0,0 +1,155 @@
+package com.loopify.mainservice.service.user;
+
+import com.loopify.mainservice.dto.user.FollowCounts;
+import com.loopify.mainservice.repository.user.UserStatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Follower / following counters kept in {@code user_stats} instead of counting {@code user_follows} on
+ * every read. Counter rows are written in the follow transaction; reads go through a Redis hash
+ * ({@code user_stats:{id}}) that is loaded on a miss and dropped after each commit. Every drop bumps a
+ * generation ({@code user_stats_gen:{id}}) that a load checks before caching, so a load racing a follow
+ * cannot cache the count from before it. Drift in the counter rows is corrected by the reconciler.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserStatsService {
+
+    private static final String CACHE_KEY_PREFIX = "user_stats:";
+    private static final String FOLLOWERS_FIELD = "followers";
+    private static final String FOLLOWING_FIELD = "following";
+    private static final String GENERATION_KEY_PREFIX = "user_stats_gen:";
+    private static final RedisScript<Long> FILL_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/user_stats_fill.lua"), Long.class);
+    private static final RedisScript<Long> INVALIDATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/user_stats_invalidate.lua"), Long.class);
+
+    private final UserStatsRepository userStatsRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${app.user-stats.shards:16}")
+    private int shards;
+
+    @Value("${app.user-stats.cache-ttl:1h}")
+    private Duration cacheTtl;
+
+    /**
+     * Counts the follow in the caller's transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordFollowChange(Long followerId, Long followingId, boolean followed) {
+        long delta = followed ? 1 : -1;
+        userStatsRepository.addCounts(followingId, randomShard(), delta, 0);
+        userStatsRepository.addCounts(followerId, randomShard(), 0, delta);
+    }
+
+    /**
+     * Counts follows or unfollows of several users by one follower in the caller's transaction, as a
+     * single JDBC batch.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordFollowChanges(Long followerId, Collection<Long> followingIds, boolean followed) {
+        if (followingIds.isEmpty()) {
+            return;
+        }
+        long delta = followed ? 1 : -1;
+        List<SqlParameterSource> rows = new ArrayList<>(followingIds.size() + 1);
+        for (Long followingId : followingIds) {
+            rows.add(countsRow(followingId, delta, 0));
+        }
+        rows.add(countsRow(followerId, 0, delta * followingIds.size()));
+        jdbcTemplate.batchUpdate(UserStatsRepository.ADD_COUNTS_SQL, rows.toArray(SqlParameterSource[]::new));
+    }
+
+    private MapSqlParameterSource countsRow(Long userId, long followersDelta, long followingDelta) {
+        return new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("shard", randomShard())
+                .addValue("followersDelta", followersDelta)
+                .addValue("followingDelta", followingDelta);
+    }
+
+    public FollowCounts getCounts(Long userId) {
+        String key = CACHE_KEY_PREFIX + userId;
+        try {
+            List<Object> cached = redisTemplate.opsForHash().multiGet(key, List.of(FOLLOWERS_FIELD, FOLLOWING_FIELD));
+            if (cached.get(0) != null && cached.get(1) != null) {
+                return new FollowCounts(Long.parseLong((String) cached.get(0)), Long.parseLong((String) cached.get(1)));
+            }
+        } catch (Exception e) {
+            log.warn("Reading cached follow counts for user {} failed: {}", userId, e.getMessage());
+            return userStatsRepository.sumCounts(userId);
+        }
+
+        String generationKey = GENERATION_KEY_PREFIX + userId;
+        String generation;
+        try {
+            generation = redisTemplate.opsForValue().get(generationKey);
+        } catch (Exception e) {
+            log.warn("Reading follow counts generation for user {} failed: {}", userId, e.getMessage());
+            return userStatsRepository.sumCounts(userId);
+        }
+
+        FollowCounts counts = userStatsRepository.sumCounts(userId);
+        try {
+            // Skipped if a follow committed since the generation was read, the sum may predate it
+            redisTemplate.execute(FILL_SCRIPT, List.of(key, generationKey),
+                    generation != null ? generation : "",
+                    String.valueOf(counts.followers()), String.valueOf(counts.following()),
+                    String.valueOf(cacheTtl.toMillis()));
+        } catch (Exception e) {
+            log.warn("Caching follow counts for user {} failed: {}", userId, e.getMessage());
+        }
+        return counts;
+    }
+
+    /**
+     * Drops cached counts so the next read loads them from the database.
+     */
+    public void evict(Collection<Long> userIds) {
+        List<String> keys = new ArrayList<>(userIds.size() * 2);
+        for (Long userId : userIds) {
+            keys.add(CACHE_KEY_PREFIX + userId);
+            keys.add(GENERATION_KEY_PREFIX + userId);
+        }
+        // The generation outlives any load that could have read the counts before this change
+        redisTemplate.execute(INVALIDATE_SCRIPT, keys, String.valueOf(cacheTtl.toMillis()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onFollowChanged(FollowChangedEvent event) {
+        // Evicted rather than adjusted: an increment cannot tell whether a concurrent load already saw the row
+        try {
+            evict(List.of(event.followingId(), event.followerId()));
+        } catch (Exception e) {
+            // Stale until the entry expires
+            log.warn("Evicting cached follow counts for {} -> {} failed: {}",
+                    event.followerId(), event.followingId(), e.getMessage());
+        }
+    }
+
+    private int randomShard() {
+        return ThreadLocalRandom.current().nextInt(shards);
+    }
+}
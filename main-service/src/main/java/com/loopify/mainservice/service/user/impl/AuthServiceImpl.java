@@ -1,30 +1,33 @@
 package com.loopify.mainservice.service.user.impl;
 
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
-import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.gson.GsonFactory;
 import com.loopify.mainservice.dto.response.user.AuthResponse;
 import com.loopify.mainservice.dto.user.UserDto;
-import com.loopify.mainservice.model.user.RefreshToken;
+import com.loopify.mainservice.exception.TooManyRequestsException;
 import com.loopify.mainservice.model.user.User;
 import com.loopify.mainservice.repository.user.UserRepository;
+import com.loopify.mainservice.security.AccessTokenRevocationService;
+import com.loopify.mainservice.security.CodeRequestThrottle;
+import com.loopify.mainservice.security.GoogleTokenVerifier;
 import com.loopify.mainservice.security.JwtService;
-import com.loopify.mainservice.security.RefreshTokenService;
+import com.loopify.mainservice.security.RefreshTokenStore;
+import com.loopify.mainservice.security.VerificationCodeStore;
 import com.loopify.mainservice.service.EmailService;
 import com.loopify.mainservice.service.user.AuthService;
 import com.loopify.mainservice.utils.Utils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.IOException;
-import java.security.GeneralSecurityException;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
@@ -32,44 +35,83 @@ import java.util.*;
 public class AuthServiceImpl implements AuthService {
 
     private final UserRepository userRepository;
-    private final RefreshTokenService refreshTokenService;
+    private final RefreshTokenStore refreshTokenStore;
     private final JwtService jwtService;
+    private final AccessTokenRevocationService accessTokenRevocationService;
     private final EmailService emailService;
-    private final StringRedisTemplate redisTemplate;
+    private final VerificationCodeStore verificationCodeStore;
+    private final CodeRequestThrottle codeRequestThrottle;
+    private final GoogleTokenVerifier googleTokenVerifier;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
 
     @Value("${app.email-code.ttl-minutes}")
     private long codeTtlMinutes;
     @Value("${app.email-code.length}")
     private int codeLength;
-    @Value("${app.google.client-id}")
-    private String googleClientId;
 
-    private static final String EMAIL_CODE_PREFIX = "email_code:";
+    // Login latency split into credential verification and user lookup/creation + token issuing
+    private Timer emailVerifyTimer;
+    private Timer emailDbTimer;
+    private Timer googleVerifyTimer;
+    private Timer googleDbTimer;
+
+    @PostConstruct
+    void initMetrics() {
+        this.emailVerifyTimer = loginTimer("email_code", "verify");
+        this.emailDbTimer = loginTimer("email_code", "db");
+        this.googleVerifyTimer = loginTimer("google", "verify");
+        this.googleDbTimer = loginTimer("google", "db");
+    }
+
+    private Timer loginTimer(String method, String phase) {
+        return Timer.builder("auth.login.duration")
+                .tag("method", method)
+                .tag("phase", phase)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
 
     @Override
-    @Transactional
-    public void requestEmailCode(String email) {
-        // Basic validation or rely on controller validation
+    public void requestEmailCode(String email, String clientIp) {
+        Duration retryAfter = codeRequestThrottle.tryAcquire(email, clientIp);
+        if (!retryAfter.isZero()) {
+            log.warn("Verification code request throttled for email: {}, ip: {}", email, clientIp);
+            // Round up, a client retrying right on time must not be rejected again
+            long retryAfterSeconds = (retryAfter.toMillis() + 999) / 1000;
+            throw new TooManyRequestsException("Too many verification code requests, please try again later.",
+                    retryAfterSeconds);
+        }
         String code = Utils.generateNumericCode(codeLength);
-        String redisKey = EMAIL_CODE_PREFIX + email;
-        redisTemplate.opsForValue().set(redisKey, code, Duration.ofMinutes(codeTtlMinutes));
+        verificationCodeStore.store(email, code, Duration.ofMinutes(codeTtlMinutes));
         log.debug("Stored verification code for email: {}", email); // Don't log the code itself ideally
         emailService.sendVerificationCode(email, code);
     }
 
     @Override
-    @Transactional
     public AuthResponse verifyEmailCode(String email, String code) {
-        String redisKey = EMAIL_CODE_PREFIX + email;
-        String storedCode = redisTemplate.opsForValue().get(redisKey);
+        long verifyStart = System.nanoTime();
+        VerificationCodeStore.Result result = verificationCodeStore.verify(email, code);
+        emailVerifyTimer.record(System.nanoTime() - verifyStart, TimeUnit.NANOSECONDS);
 
-        if (storedCode == null || !storedCode.equals(code)) {
+        if (result == VerificationCodeStore.Result.LOCKED) {
+            log.warn("Too many failed code attempts for email: {}, code discarded", email);
+            throw new RuntimeException("Too many failed attempts, please request a new verification code.");
+        }
+        if (result != VerificationCodeStore.Result.VALID) {
             log.warn("Invalid or expired code attempt for email: {}", email);
             throw new RuntimeException("Invalid or expired verification code."); // Or specific exception
         }
 
-        redisTemplate.delete(redisKey); // Code is valid, consume it
+        long dbStart = System.nanoTime();
+        try {
+            return transactionTemplate.execute(status -> loginEmailUser(email));
+        } finally {
+            emailDbTimer.record(System.nanoTime() - dbStart, TimeUnit.NANOSECONDS);
+        }
+    }
 
+    private AuthResponse loginEmailUser(String email) {
         Optional<User> existingUserOpt = userRepository.findByEmail(email);
         User user;
 
@@ -96,9 +138,11 @@ public class AuthServiceImpl implements AuthService {
     }
 
     @Override
-    @Transactional
     public AuthResponse loginWithGoogle(String idTokenString) {
-        GoogleIdToken.Payload payload = verifyGoogleIdToken(idTokenString);
+        // Verified outside the transaction, so no database connection is held while Google keys are checked
+        long verifyStart = System.nanoTime();
+        GoogleIdToken.Payload payload = googleTokenVerifier.verify(idTokenString);
+        googleVerifyTimer.record(System.nanoTime() - verifyStart, TimeUnit.NANOSECONDS);
         if (payload == null) {
             throw new RuntimeException("Invalid Google ID token.");
         }
@@ -113,6 +157,15 @@ public class AuthServiceImpl implements AuthService {
             throw new RuntimeException("Google email not verified.");
         }
 
+        long dbStart = System.nanoTime();
+        try {
+            return transactionTemplate.execute(status -> loginGoogleUser(googleId, email, name, pictureUrl));
+        } finally {
+            googleDbTimer.record(System.nanoTime() - dbStart, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private AuthResponse loginGoogleUser(String googleId, String email, String name, String pictureUrl) {
         // Prioritize finding by googleId if available, then by email
         Optional<User> userOpt = userRepository.findByGoogleId(googleId)
                 .or(() -> userRepository.findByEmail(email));
@@ -165,27 +218,33 @@ public class AuthServiceImpl implements AuthService {
     }
 
     @Override
-    @Transactional
+    @Transactional // Not read-only: rotating writes the revocation and the new token
     public AuthResponse refreshToken(String requestRefreshToken) {
-        return refreshTokenService.findByToken(requestRefreshToken)
-                .map(refreshTokenService::verifyExpiration)
-                .map(RefreshToken::getUser)
-                .map(user -> {
-                    // Generate new Access token
-                    String newAccessToken = jwtService.generateToken(user);
-                    return new AuthResponse(newAccessToken, requestRefreshToken, covertUserToUserDto(user));
-                })
-                .orElseThrow(() -> new RuntimeException("Refresh token is not in database!"));
+        // The presented token is consumed, the client gets the rotated one back
+        RefreshTokenStore.RotatedToken rotated = refreshTokenStore.rotate(requestRefreshToken)
+                .orElseThrow(() -> new RuntimeException("Refresh token is invalid or expired!"));
+        User user = userRepository.findById(rotated.userId())
+                .filter(User::getIsActive)
+                .orElseThrow(() -> new RuntimeException("Account is disabled."));
+        String newAccessToken = jwtService.generateToken(user);
+        return new AuthResponse(newAccessToken, rotated.token(), covertUserToUserDto(user));
     }
 
     @Override
     @Transactional
-    public void logout(String refreshToken) {
-        // Find and delete the specific refresh token
-        Optional<RefreshToken> tokenOpt = refreshTokenService.findByToken(refreshToken);
-        if(tokenOpt.isPresent()){
-            refreshTokenService.revokeAllUserTokens(tokenOpt.get().getUser());
-            log.info("User logged out, refresh token invalidated: {}", refreshToken.substring(0, 6) + "...");
+    public void logout(String refreshToken, String accessToken) {
+        // Access token first, it stays usable until it expires otherwise
+        if (accessToken != null) {
+            accessTokenRevocationService.revoke(accessToken);
+        }
+        if (refreshToken == null) {
+            log.warn("Logout attempt without refresh token");
+            return;
+        }
+        // Revoke every refresh token of the owner
+        Optional<Long> userId = refreshTokenStore.revokeAll(refreshToken);
+        if (userId.isPresent()) {
+            log.info("User {} logged out, refresh tokens invalidated", userId.get());
         } else {
             log.warn("Logout attempt with non-existent refresh token: {}", refreshToken.substring(0, 6) + "...");
             // Decide if this should be an error or just logged
@@ -206,29 +265,11 @@ public class AuthServiceImpl implements AuthService {
 
     private AuthResponse generateAndSaveTokens(User user) {
         String accessToken = jwtService.generateToken(user);
-        RefreshToken refreshToken = refreshTokenService.createRefreshToken(user.getId());
-        return new AuthResponse(accessToken, refreshToken.getToken(), covertUserToUserDto(user));
+        String refreshToken = refreshTokenStore.issue(user.getId());
+        return new AuthResponse(accessToken, refreshToken, covertUserToUserDto(user));
     }
 
 
-    private GoogleIdToken.Payload verifyGoogleIdToken(String idTokenString) {
-        GoogleIdTokenVerifier verifier = new GoogleIdTokenVerifier.Builder(new NetHttpTransport(), GsonFactory.getDefaultInstance())
-                .setAudience(Collections.singletonList(googleClientId))
-                .build();
-        try {
-            GoogleIdToken idToken = verifier.verify(idTokenString);
-            if (idToken != null) {
-                return idToken.getPayload();
-            } else {
-                log.error("Google ID Token verification failed (token invalid or expired).");
-                return null;
-            }
-        } catch (GeneralSecurityException | IOException | IllegalArgumentException e) {
-            log.error("Error verifying Google ID Token: {}", e.getMessage());
-            return null;
-        }
-    }
-
     private String generateDefaultNickname() {
         return "user_" + UUID.randomUUID().toString().replace("-", "").substring(0, 5);
     }
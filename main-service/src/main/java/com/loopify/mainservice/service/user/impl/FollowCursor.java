@@ -0,0 +1,38 @@
+package com.loopify.mainservice.service.user.impl;
+
+import com.loopify.mainservice.exception.AppException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a follow list: the follow time and user id of the last row returned. Clients get it as an
+ * opaque string and only pass it back.
+ */
+record FollowCursor(LocalDateTime createdAt, Long userId) {
+
+    String encode() {
+        String raw = createdAt + "|" + userId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the decoded cursor, or null if none was given
+     * @throws AppException if the cursor is malformed
+     */
+    static FollowCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new FollowCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new AppException("Invalid cursor");
+        }
+    }
+}
@@ -2,29 +2,50 @@ package com.loopify.mainservice.service.user.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loopify.mainservice.dto.response.CursorPage;
+import com.loopify.mainservice.dto.response.user.FollowSuggestionsResponse;
+import com.loopify.mainservice.dto.user.FollowOutcome;
+import com.loopify.mainservice.dto.user.FollowSuggestionDto;
 import com.loopify.mainservice.dto.user.UserFollowDto;
+import com.loopify.mainservice.dto.user.UserSummary;
 import com.loopify.mainservice.enums.NotificationType;
 import com.loopify.mainservice.exception.AppException;
+import com.loopify.mainservice.graph.FollowGraphIndex;
+import com.loopify.mainservice.graph.FriendsOfFriends;
+import com.loopify.mainservice.graph.MutualFollowerFinder;
 import com.loopify.mainservice.model.NotificationOutbox;
-import com.loopify.mainservice.model.user.User;
-import com.loopify.mainservice.model.user.UserFollows;
 import com.loopify.mainservice.notification.BaseNotification;
 import com.loopify.mainservice.notification.FollowNotification;
 import com.loopify.mainservice.repository.notification.NotificationOutboxRepository;
+import com.loopify.mainservice.repository.user.FollowBatchRepository;
 import com.loopify.mainservice.repository.user.UserFollowsRepository;
 import com.loopify.mainservice.repository.user.UserRepository;
+import com.loopify.mainservice.service.user.FollowChangedEvent;
+import com.loopify.mainservice.service.user.FollowGraphCache;
 import com.loopify.mainservice.service.user.FollowService;
+import com.loopify.mainservice.service.user.UserStatsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Statement;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,10 +53,22 @@ import java.util.stream.Collectors;
 @Slf4j
 public class FollowServiceImpl implements FollowService {
 
+    // Same order as the keyset queries
+    private static final Comparator<UserFollowDto> NEWEST_FIRST = Comparator
+            .comparing(UserFollowDto::getFollowedAt)
+            .thenComparing(UserFollowDto::getUserId)
+            .reversed();
+
     private final UserFollowsRepository userFollowsRepository;
+    private final FollowBatchRepository followBatchRepository;
     private final UserRepository userRepository;
     private final ObjectMapper objectMapper;
     private final NotificationOutboxRepository notificationOutboxRepository;
+    private final UserStatsService userStatsService;
+    private final FollowGraphCache followGraphCache;
+    private final MutualFollowerFinder mutualFollowerFinder;
+    private final FollowGraphIndex followGraphIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -46,48 +79,27 @@ public class FollowServiceImpl implements FollowService {
             return false;
         }
 
-        // Check if already following
-        if (userFollowsRepository.existsByFollowerIdAndFollowingId(followerId, followingId)) {
+        // Validates both users and reads the follower's notification fields in one query
+        Map<Long, UserSummary> users = userRepository.findActiveSummaries(List.of(followerId, followingId)).stream()
+                .collect(Collectors.toMap(UserSummary::id, Function.identity()));
+        UserSummary follower = users.get(followerId);
+        if (follower == null) {
+            throw new AppException("User not found with id: " + followerId);
+        }
+        if (!users.containsKey(followingId)) {
+            throw new AppException("User not found with id: " + followingId);
+        }
+
+        // The insert itself decides, no exists check first: concurrent follows must not both count
+        if (userFollowsRepository.insertIgnore(followerId, followingId, LocalDateTime.now()) == 0) {
             log.info("User {} is already following user {}", followerId, followingId);
             return false;
         }
-
-        // Get user entities
-        User follower = userRepository.findById(followerId)
-                .orElseThrow(() -> new AppException("User not found with id: " + followerId));
-
-        User following = userRepository.findById(followingId)
-                .orElseThrow(() -> new AppException("User not found with id: " + followingId));
-
-        // Create follow relationship
-        UserFollows userFollows = UserFollows.builder()
-                .follower(follower)
-                .following(following)
-                .createdAt(LocalDateTime.now())
-                .build();
-
-        userFollowsRepository.save(userFollows);
-
-
-
-
-        Long notificationId = UUID.randomUUID().getMostSignificantBits() & Long.MAX_VALUE;
-        BaseNotification notification = new FollowNotification(
-                notificationId, // notificationId
-                following.getId(),
-                follower.getId(),
-                userFollows.getFollower().getNickname(),
-                userFollows.getFollower().getAvatarUrl()
-        );
+        userStatsService.recordFollowChange(followerId, followingId, true);
+        eventPublisher.publishEvent(new FollowChangedEvent(followerId, followingId, true));
 
         // persist data to notification outbox
-        NotificationOutbox notificationOutbox = NotificationOutbox.builder()
-                .id(notificationId)
-                .notificationType(NotificationType.FOLLOW)
-                .payload(objectMapper.writeValueAsString(notification))
-                .build();
-
-        notificationOutboxRepository.save(notificationOutbox);
+        notificationOutboxRepository.save(followOutbox(follower, followingId));
         log.info("User {} started following user {}", followerId, followingId);
 
         return true;
@@ -97,98 +109,328 @@ public class FollowServiceImpl implements FollowService {
     @Transactional
     public boolean unfollowUser(Long followerId, Long followingId) {
 
-        if (!userFollowsRepository.existsByFollowerIdAndFollowingId(followerId, followingId)) {
+        // The delete count, not a prior exists check, decides: concurrent unfollows must not both count
+        if (userFollowsRepository.deleteByFollowerIdAndFollowingId(followerId, followingId) == 0) {
             log.info("User {} was not following user {}", followerId, followingId);
             return false;
         }
-
-        userFollowsRepository.deleteByFollowerIdAndFollowingId(followerId, followingId);
+        userStatsService.recordFollowChange(followerId, followingId, false);
+        eventPublisher.publishEvent(new FollowChangedEvent(followerId, followingId, false));
         log.info("User {} unfollowed user {}", followerId, followingId);
         return true;
     }
 
+    @Override
+    @Transactional
+    public Map<Long, FollowOutcome> followUsers(Long followerId, List<Long> followingIds) throws JsonProcessingException {
+        List<Long> targets = followingIds.stream().distinct().toList();
+        // Follower and all targets validated in one query
+        List<Long> userIds = new ArrayList<>(targets.size() + 1);
+        userIds.addAll(targets);
+        userIds.add(followerId);
+        Map<Long, UserSummary> users = userRepository.findActiveSummaries(userIds).stream()
+                .collect(Collectors.toMap(UserSummary::id, Function.identity()));
+        UserSummary follower = users.get(followerId);
+        if (follower == null) {
+            throw new AppException("User not found with id: " + followerId);
+        }
+
+        Map<Long, FollowOutcome> results = new LinkedHashMap<>(targets.size() * 2);
+        List<Long> candidates = new ArrayList<>(targets.size());
+        for (Long target : targets) {
+            if (target.equals(followerId)) {
+                results.put(target, FollowOutcome.SELF);
+            } else if (!users.containsKey(target)) {
+                results.put(target, FollowOutcome.USER_NOT_FOUND);
+            } else {
+                results.put(target, FollowOutcome.ALREADY_FOLLOWING);
+                candidates.add(target);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return results;
+        }
+
+        // Drivers that rewrite batches report no per-row counts, then this check decides what was inserted
+        Set<Long> alreadyFollowing = userFollowsRepository.findFollowedAmong(followerId, candidates);
+        List<Long> toInsert = candidates.stream().filter(id -> !alreadyFollowing.contains(id)).toList();
+        if (toInsert.isEmpty()) {
+            return results;
+        }
+        int[] counts = followBatchRepository.insertFollows(followerId, toInsert, LocalDateTime.now());
+        List<Long> followed = affected(toInsert, counts);
+
+        List<NotificationOutbox> outbox = new ArrayList<>(followed.size());
+        for (Long followingId : followed) {
+            results.put(followingId, FollowOutcome.FOLLOWED);
+            outbox.add(followOutbox(follower, followingId));
+            eventPublisher.publishEvent(new FollowChangedEvent(followerId, followingId, true));
+        }
+        userStatsService.recordFollowChanges(followerId, followed, true);
+        if (!outbox.isEmpty()) {
+            followBatchRepository.insertOutbox(outbox);
+        }
+        log.info("User {} followed {} of {} requested users", followerId, followed.size(), targets.size());
+        return results;
+    }
+
+    @Override
+    @Transactional
+    public Map<Long, FollowOutcome> unfollowUsers(Long followerId, List<Long> followingIds) {
+        List<Long> targets = followingIds.stream().distinct().toList();
+        Map<Long, FollowOutcome> results = new LinkedHashMap<>(targets.size() * 2);
+        List<Long> candidates = new ArrayList<>(targets.size());
+        for (Long target : targets) {
+            results.put(target, target.equals(followerId) ? FollowOutcome.SELF : FollowOutcome.NOT_FOLLOWING);
+            if (!target.equals(followerId)) {
+                candidates.add(target);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return results;
+        }
+
+        Set<Long> following = userFollowsRepository.findFollowedAmong(followerId, candidates);
+        List<Long> toDelete = candidates.stream().filter(following::contains).toList();
+        if (toDelete.isEmpty()) {
+            return results;
+        }
+        List<Long> unfollowed = affected(toDelete, followBatchRepository.deleteFollows(followerId, toDelete));
+        for (Long followingId : unfollowed) {
+            results.put(followingId, FollowOutcome.UNFOLLOWED);
+            eventPublisher.publishEvent(new FollowChangedEvent(followerId, followingId, false));
+        }
+        userStatsService.recordFollowChanges(followerId, unfollowed, false);
+        log.info("User {} unfollowed {} of {} requested users", followerId, unfollowed.size(), targets.size());
+        return results;
+    }
+
+    /**
+     * Targets whose batch statement changed a row. An unknown count means the driver rewrote the batch;
+     * the row was absent (or present) just before, so it is counted as changed.
+     */
+    private static List<Long> affected(List<Long> targets, int[] counts) {
+        List<Long> affected = new ArrayList<>(targets.size());
+        for (int i = 0; i < targets.size(); i++) {
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                affected.add(targets.get(i));
+            }
+        }
+        return affected;
+    }
+
+    private NotificationOutbox followOutbox(UserSummary follower, Long followingId) throws JsonProcessingException {
+        Long notificationId = UUID.randomUUID().getMostSignificantBits() & Long.MAX_VALUE;
+        BaseNotification notification = new FollowNotification(notificationId, follower.id(), followingId,
+                follower.nickname(), follower.avatarUrl());
+        return NotificationOutbox.builder()
+                .id(notificationId)
+                .notificationType(NotificationType.FOLLOW)
+                .payload(objectMapper.writeValueAsString(notification))
+                .build();
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<UserFollowDto> getFollowers(Long userId, Pageable pageable) {
-        List<UserFollows> followers = userFollowsRepository.findAllFollowersByUserId(userId);
-        long totalFollowers = userFollowsRepository.countFollowers(userId);
+        Page<UserFollowDto> page = userFollowsRepository.findFollowersPage(userId, unsorted(pageable));
+        // Does the user follow each of these followers back
+        Set<Long> followedBack = page.isEmpty() ? Set.of()
+                : userFollowsRepository.findFollowedAmong(userId, userIds(page));
+        page.forEach(dto -> dto.setFollowingBack(followedBack.contains(dto.getUserId())));
+        return page;
+    }
 
-        List<UserFollowDto> followerDtos = followers.stream()
-                .map(follow -> {
-                    User follower = follow.getFollower();
-                    boolean isFollowingBack = userFollowsRepository.existsByFollowerIdAndFollowingId(userId, follower.getId());
-                    return UserFollowDto.builder()
-                            .userId(follower.getId())
-                            .nickname(follower.getNickname())
-                            .avatarUrl(follower.getAvatarUrl())
-                            .followedAt(follow.getCreatedAt())
-                            .isFollowingBack(isFollowingBack)
-                            .build();
-                })
-                .collect(Collectors.toList());
+    @Override
+    @Transactional(readOnly = true)
+    public Page<UserFollowDto> getFollowing(Long userId, Pageable pageable) {
+        Page<UserFollowDto> page = userFollowsRepository.findFollowingPage(userId, unsorted(pageable));
+        // Does each followed user follow the user back
+        Set<Long> followingBack = page.isEmpty() ? Set.of()
+                : userFollowsRepository.findFollowersAmong(userId, userIds(page));
+        page.forEach(dto -> dto.setFollowingBack(followingBack.contains(dto.getUserId())));
+        return page;
+    }
 
-        return new PageImpl<>(followerDtos, pageable, totalFollowers);
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<UserFollowDto> getFollowers(Long userId, String cursor, int size) {
+        FollowCursor after = FollowCursor.decode(cursor);
+        CursorPage<UserFollowDto> page = after == null
+                ? cachedFirstPage(FollowGraphCache.Direction.FOLLOWERS, userId, size) : null;
+        if (page == null) {
+            // One extra row tells whether there is a next page, no count needed
+            Limit limit = Limit.of(size + 1);
+            List<UserFollowDto> rows = after == null
+                    ? userFollowsRepository.findFollowersFirst(userId, limit)
+                    : userFollowsRepository.findFollowersAfter(userId, after.createdAt(), after.userId(), limit);
+            page = toCursorPage(rows, size);
+        }
+        if (!page.items().isEmpty()) {
+            Set<Long> followedBack = userFollowsRepository.findFollowedAmong(userId, userIds(page.items()));
+            page.items().forEach(dto -> dto.setFollowingBack(followedBack.contains(dto.getUserId())));
+        }
+        return page;
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<UserFollowDto> getFollowing(Long userId, Pageable pageable) {
-        List<UserFollows> followings = userFollowsRepository.findAllFollowingByUserId(userId);
-        long totalFollowings = userFollowsRepository.countFollowing(userId);
+    public CursorPage<UserFollowDto> getFollowing(Long userId, String cursor, int size) {
+        FollowCursor after = FollowCursor.decode(cursor);
+        CursorPage<UserFollowDto> page = after == null
+                ? cachedFirstPage(FollowGraphCache.Direction.FOLLOWING, userId, size) : null;
+        if (page == null) {
+            Limit limit = Limit.of(size + 1);
+            List<UserFollowDto> rows = after == null
+                    ? userFollowsRepository.findFollowingFirst(userId, limit)
+                    : userFollowsRepository.findFollowingAfter(userId, after.createdAt(), after.userId(), limit);
+            page = toCursorPage(rows, size);
+        }
+        if (!page.items().isEmpty()) {
+            Set<Long> followingBack = userFollowsRepository.findFollowersAmong(userId, userIds(page.items()));
+            page.items().forEach(dto -> dto.setFollowingBack(followingBack.contains(dto.getUserId())));
+        }
+        return page;
+    }
+
+    /**
+     * First page from the follow graph cache: the cache picks the candidates, their rows and follow times
+     * come from the database by primary key. Null if the cache can't serve the page.
+     */
+    private CursorPage<UserFollowDto> cachedFirstPage(FollowGraphCache.Direction direction, Long userId, int size) {
+        FollowGraphCache.FirstPage candidates = followGraphCache.firstPage(direction, userId, size);
+        if (candidates == null) {
+            return null;
+        }
+        List<UserFollowDto> rows = new ArrayList<>();
+        if (!candidates.userIds().isEmpty()) {
+            rows.addAll(direction == FollowGraphCache.Direction.FOLLOWERS
+                    ? userFollowsRepository.findFollowersByIds(userId, candidates.userIds())
+                    : userFollowsRepository.findFollowingByIds(userId, candidates.userIds()));
+        }
+        rows.sort(NEWEST_FIRST);
+        boolean hasMore = rows.size() > size || candidates.total() > candidates.userIds().size();
+        List<UserFollowDto> items = rows.subList(0, Math.min(size, rows.size()));
+        if (hasMore && items.isEmpty()) {
+            // Nothing to continue from
+            return null;
+        }
+        return toCursorPage(items, hasMore);
+    }
 
-        List<UserFollowDto> followingDtos = followings.stream()
-                .map(follow -> {
-                    User following = follow.getFollowing();
-                    boolean isFollowingBack = userFollowsRepository.existsByFollowerIdAndFollowingId(
-                            following.getId(), userId
-                    );
-                    return UserFollowDto.builder()
-                            .userId(following.getId())
-                            .nickname(following.getNickname())
-                            .avatarUrl(following.getAvatarUrl())
-                            .followedAt(follow.getCreatedAt())
-                            .isFollowingBack(isFollowingBack)
-                            .build();
-                })
-                .collect(Collectors.toList());
+    private static CursorPage<UserFollowDto> toCursorPage(List<UserFollowDto> rows, int size) {
+        return rows.size() <= size ? toCursorPage(rows, false) : toCursorPage(rows.subList(0, size), true);
+    }
 
-        return new PageImpl<>(followingDtos, pageable, totalFollowings);
+    private static CursorPage<UserFollowDto> toCursorPage(List<UserFollowDto> items, boolean hasMore) {
+        if (!hasMore) {
+            return new CursorPage<>(items, null);
+        }
+        UserFollowDto last = items.get(items.size() - 1);
+        return new CursorPage<>(items, new FollowCursor(last.getFollowedAt(), last.getUserId()).encode());
+    }
+
+    // The page queries fix their own order (newest first), a client supplied sort can't be applied to them
+    private static Pageable unsorted(Pageable pageable) {
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+    }
+
+    private static List<Long> userIds(Page<UserFollowDto> page) {
+        return userIds(page.getContent());
+    }
+
+    private static List<Long> userIds(List<UserFollowDto> follows) {
+        return follows.stream().map(UserFollowDto::getUserId).toList();
     }
 
     @Override
-    @Transactional(readOnly = true)
     public long countFollowers(Long userId) {
-        return userFollowsRepository.countFollowers(userId);
+        return userStatsService.getCounts(userId).followers();
     }
 
     @Override
-    @Transactional(readOnly = true)
     public long countFollowing(Long userId) {
-        return userFollowsRepository.countFollowing(userId);
+        return userStatsService.getCounts(userId).following();
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean isFollowing(Long followerId, Long followingId) {
+        Boolean cached = followGraphCache.isFollowing(followerId, followingId);
+        if (cached != null) {
+            return cached;
+        }
         return userFollowsRepository.existsByFollowerIdAndFollowingId(followerId, followingId);
     }
 
     @Override
     @Transactional(readOnly = true)
+    public Map<Long, Boolean> isFollowing(Long followerId, List<Long> followingIds) {
+        List<Long> distinctIds = followingIds.stream().distinct().toList();
+        Set<Long> followed = new HashSet<>();
+        List<Long> unknown = distinctIds;
+        FollowGraphCache.Membership cached = followGraphCache.followedAmong(followerId, distinctIds);
+        if (cached != null) {
+            followed.addAll(cached.followed());
+            unknown = cached.unknown();
+        }
+        // One IN query for whatever the cache couldn't answer
+        if (!unknown.isEmpty()) {
+            followed.addAll(userFollowsRepository.findFollowedAmong(followerId, unknown));
+        }
+        Map<Long, Boolean> result = new LinkedHashMap<>(distinctIds.size() * 2);
+        distinctIds.forEach(id -> result.put(id, followed.contains(id)));
+        return result;
+    }
+
+    @Override
     public List<Long> getMutualFollowers(Long userId1, Long userId2) {
-        List<UserFollows> followersUser1 = userFollowsRepository.findAllFollowersByUserId(userId1);
+        long[] ids = mutualFollowerFinder.find(userId1, userId2, Long.MIN_VALUE, Integer.MAX_VALUE);
+        return Arrays.stream(ids).boxed().toList();
+    }
 
-        List<UserFollows> followersUser2 = userFollowsRepository.findAllFollowersByUserId(userId2);
+    @Override
+    public CursorPage<Long> getMutualFollowers(Long userId1, Long userId2, String cursor, int size) {
+        long afterId = Long.MIN_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                afterId = Long.parseLong(cursor);
+            } catch (NumberFormatException e) {
+                throw new AppException("Invalid cursor");
+            }
+        }
+        // One extra id tells whether there is a next page
+        long[] ids = mutualFollowerFinder.find(userId1, userId2, afterId, size + 1);
+        int count = Math.min(ids.length, size);
+        List<Long> items = Arrays.stream(ids, 0, count).boxed().toList();
+        String nextCursor = ids.length > size ? String.valueOf(ids[size - 1]) : null;
+        return new CursorPage<>(items, nextCursor);
+    }
 
-        // Extract follower IDs
-        List<Long> followerIdsUser1 = followersUser1.stream()
-                .map(uf -> uf.getFollower().getId())
-                .toList();
+    @Override
+    public long countMutualFollowers(Long userId1, Long userId2) {
+        return mutualFollowerFinder.count(userId1, userId2);
+    }
 
-        // Find common followers
-        return followersUser2.stream()
-                .map(uf -> uf.getFollower().getId())
-                .filter(followerIdsUser1::contains)
-                .collect(Collectors.toList());
+    @Override
+    @Transactional(readOnly = true)
+    public FollowSuggestionsResponse getSuggestions(Long userId, int limit) {
+        FriendsOfFriends.Result result = followGraphIndex.suggest(userId, limit);
+        if (result == null) {
+            return null;
+        }
+        List<Long> ids = result.suggestions().stream().map(FriendsOfFriends.Suggestion::userId).toList();
+        Map<Long, UserSummary> users = ids.isEmpty() ? Map.of() : userRepository.findActiveSummaries(ids).stream()
+                .collect(Collectors.toMap(UserSummary::id, Function.identity()));
+        // Keeps the graph's ranking, deactivated users are dropped
+        List<FollowSuggestionDto> suggestions = new ArrayList<>(users.size());
+        for (FriendsOfFriends.Suggestion suggestion : result.suggestions()) {
+            UserSummary user = users.get(suggestion.userId());
+            if (user != null) {
+                suggestions.add(new FollowSuggestionDto(user.id(), user.nickname(), user.avatarUrl(),
+                        suggestion.sharedConnections()));
+            }
+        }
+        return new FollowSuggestionsResponse(suggestions, result.partial());
     }
 }
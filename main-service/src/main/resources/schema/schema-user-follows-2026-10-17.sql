@@ -0,0 +1,9 @@
+-- Keyset pagination of follow lists: equality on one side, then (created_at, other side) in index order.
+-- The new indexes start with the columns of idx_following / idx_follower, which become redundant.
+ALTER TABLE user_follows
+    ADD INDEX idx_follows_following_created (following_id, created_at, follower_id),
+    ADD INDEX idx_follows_follower_created (follower_id, created_at, following_id);
+
+ALTER TABLE user_follows
+    DROP INDEX idx_following,
+    DROP INDEX idx_follower;
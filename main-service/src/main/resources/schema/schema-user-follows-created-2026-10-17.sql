@@ -0,0 +1,3 @@
+-- Follow graph snapshots are caught up with the follows created since they were taken.
+ALTER TABLE user_follows
+    ADD INDEX idx_follows_created (created_at);
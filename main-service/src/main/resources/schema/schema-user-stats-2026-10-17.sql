@@ -0,0 +1,16 @@
+-- Sharded follow counters, a user's counts are the sums over their rows
+CREATE TABLE user_stats (
+                            user_id BIGINT NOT NULL,
+                            shard INT NOT NULL,
+                            followers_count BIGINT NOT NULL DEFAULT 0,
+                            following_count BIGINT NOT NULL DEFAULT 0,
+                            PRIMARY KEY (user_id, shard),
+                            FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Backfill from the existing follows into shard 0
+INSERT INTO user_stats (user_id, shard, followers_count, following_count)
+SELECT u.id, 0,
+       (SELECT COUNT(*) FROM user_follows f WHERE f.following_id = u.id),
+       (SELECT COUNT(*) FROM user_follows f WHERE f.follower_id = u.id)
+FROM users u;
@@ -0,0 +1,27 @@
+-- Sliding-window limit on verification code requests, per email and per client IP.
+-- KEYS[1]: per-email window (sorted set), KEYS[2]: per-IP window
+-- ARGV[1]: window in ms, ARGV[2]: max requests per email, ARGV[3]: max requests per IP, ARGV[4]: request id
+-- Returns 0 and records the request if both windows have room, otherwise the ms until the oldest
+-- request in the full window slides out. Rejected requests are not recorded.
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local window = tonumber(ARGV[1])
+local limits = { tonumber(ARGV[2]), tonumber(ARGV[3]) }
+
+local retryAfter = 0
+for i = 1, 2 do
+    redis.call('ZREMRANGEBYSCORE', KEYS[i], '-inf', now - window)
+    if redis.call('ZCARD', KEYS[i]) >= limits[i] then
+        local oldest = redis.call('ZRANGE', KEYS[i], 0, 0, 'WITHSCORES')
+        retryAfter = math.max(retryAfter, tonumber(oldest[2]) + window - now)
+    end
+end
+if retryAfter > 0 then
+    return retryAfter
+end
+
+for i = 1, 2 do
+    redis.call('ZADD', KEYS[i], now, ARGV[4])
+    redis.call('PEXPIRE', KEYS[i], window)
+end
+return 0
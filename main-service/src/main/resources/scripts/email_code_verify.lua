@@ -0,0 +1,27 @@
+-- Checks a verification code and consumes it in one step.
+-- KEYS[1]: code key, KEYS[2]: failed attempts counter
+-- ARGV[1]: submitted code, ARGV[2]: max failed attempts
+-- Returns 1 if the code matched (both keys are deleted), 0 on a mismatch, -1 if there is no code
+-- (never requested, expired or already used) and -2 once the attempts are used up (the code is deleted).
+local stored = redis.call('GET', KEYS[1])
+if not stored then
+    return -1
+end
+if stored == ARGV[1] then
+    redis.call('DEL', KEYS[1], KEYS[2])
+    return 1
+end
+
+local attempts = redis.call('INCR', KEYS[2])
+if attempts == 1 then
+    -- Lives exactly as long as the code it counts against
+    local ttl = redis.call('PTTL', KEYS[1])
+    if ttl > 0 then
+        redis.call('PEXPIRE', KEYS[2], ttl)
+    end
+end
+if attempts >= tonumber(ARGV[2]) then
+    redis.call('DEL', KEYS[1], KEYS[2])
+    return -2
+end
+return 0
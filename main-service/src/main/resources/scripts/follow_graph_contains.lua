@@ -0,0 +1,18 @@
+-- Membership check against a cached follow set.
+-- KEYS[1]: sorted set, KEYS[2]: state key; ARGV[1]: member
+-- Returns 1 if present, 0 if definitely absent, -1 if the cache can't tell (not cached, loading, or
+-- absent from a set that only holds the newest edges), or -2 if the set is not cached and nobody is loading it.
+local state = redis.call('GET', KEYS[2])
+if not state then
+    return -2
+end
+if state ~= 'complete' and state ~= 'partial' then
+    return -1
+end
+if redis.call('ZSCORE', KEYS[1], ARGV[1]) then
+    return 1
+end
+if state == 'complete' then
+    return 0
+end
+return -1
@@ -0,0 +1,17 @@
+-- Membership check of several members against a cached follow set, in one round trip.
+-- KEYS[1]: sorted set, KEYS[2]: state key; ARGV: members
+-- Returns {-2} if the set is not cached and nobody is loading it, {-1} if the cache can't tell (loading),
+-- otherwise {complete, r1, r2, ...}: complete is 1 if the set holds every edge and 0 if only the newest,
+-- ri is 1 if ARGV[i] is present and 0 if not. Absent members of a partial set are unknown.
+local state = redis.call('GET', KEYS[2])
+if not state then
+    return {-2}
+end
+if state ~= 'complete' and state ~= 'partial' then
+    return {-1}
+end
+local result = {state == 'complete' and 1 or 0}
+for i = 1, #ARGV do
+    result[i + 1] = redis.call('ZSCORE', KEYS[1], ARGV[i]) and 1 or 0
+end
+return result
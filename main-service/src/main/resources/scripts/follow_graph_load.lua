@@ -0,0 +1,17 @@
+-- Replaces a cached follow set with freshly loaded edges, unless a follow change invalidated the load.
+-- KEYS[1]: sorted set, KEYS[2]: state key (holds 'loading:<token>' while the load runs)
+-- ARGV[1]: load token, ARGV[2]: 'complete' or 'partial', ARGV[3]: ttl in ms, ARGV[4..]: score, member pairs
+-- Returns 1 if stored, 0 if the load was invalidated.
+if redis.call('GET', KEYS[2]) ~= 'loading:' .. ARGV[1] then
+    return 0
+end
+redis.call('DEL', KEYS[1])
+local chunk = 1000
+for i = 4, #ARGV, chunk do
+    redis.call('ZADD', KEYS[1], unpack(ARGV, i, math.min(i + chunk - 1, #ARGV)))
+end
+redis.call('SET', KEYS[2], ARGV[2], 'PX', ARGV[3])
+if #ARGV >= 4 then
+    redis.call('PEXPIRE', KEYS[1], ARGV[3])
+end
+return 1
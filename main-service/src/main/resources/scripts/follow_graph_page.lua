@@ -0,0 +1,45 @@
+-- Candidates for the first page of a cached follow list, newest first.
+-- KEYS[1]: sorted set, KEYS[2]: state key
+-- ARGV[1]: page size, ARGV[2]: score tolerance (cached scores may differ slightly from the stored follow
+-- times), ARGV[3]: max candidates
+-- Returns {total, members...} with every member whose score is within the tolerance of the page's last
+-- entry, so the caller can order the page by the stored times. Returns {-2} if the set is not cached and
+-- nobody is loading it, {-1} if the cache can't serve this page.
+local state = redis.call('GET', KEYS[2])
+if not state then
+    return { -2 }
+end
+if state ~= 'complete' and state ~= 'partial' then
+    return { -1 }
+end
+local size = tonumber(ARGV[1])
+local total = redis.call('ZCARD', KEYS[1])
+local last = redis.call('ZREVRANGE', KEYS[1], size - 1, size - 1, 'WITHSCORES')
+local result = { total }
+if #last == 0 then
+    -- Fewer entries than a page, only a complete set knows there are no more
+    if state == 'partial' then
+        return { -1 }
+    end
+    for _, member in ipairs(redis.call('ZREVRANGE', KEYS[1], 0, -1)) do
+        table.insert(result, member)
+    end
+    return result
+end
+
+local lowest = tonumber(last[2]) - tonumber(ARGV[2])
+if state == 'partial' then
+    -- Older edges that were dropped from the set could belong on this page
+    local oldest = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')
+    if tonumber(oldest[2]) >= lowest then
+        return { -1 }
+    end
+end
+local candidates = redis.call('ZREVRANGEBYSCORE', KEYS[1], '+inf', lowest, 'LIMIT', 0, ARGV[3])
+if #candidates >= tonumber(ARGV[3]) then
+    return { -1 }
+end
+for _, member in ipairs(candidates) do
+    table.insert(result, member)
+end
+return result
@@ -0,0 +1,39 @@
+-- Applies one follow or unfollow to the cached follow sets of both users, where cached.
+-- KEYS[1], KEYS[2]: following set and state of the follower; KEYS[3], KEYS[4]: followers set and state of the followed user
+-- ARGV[1]: '1' follow / '0' unfollow, ARGV[2]: follower id, ARGV[3]: followed id, ARGV[4]: score, ARGV[5]: max set size
+local followed = ARGV[1] == '1'
+local maxSize = tonumber(ARGV[5])
+
+local function apply(set, stateKey, member)
+    local state = redis.call('GET', stateKey)
+    if not state then
+        return
+    end
+    if string.sub(state, 1, 8) == 'loading:' then
+        -- A load in progress may have read the edges before this change, make it discard its result
+        redis.call('DEL', stateKey)
+        return
+    end
+    if not followed then
+        redis.call('ZREM', set, member)
+        return
+    end
+    redis.call('ZADD', set, ARGV[4], member)
+    -- The set may have just been created (a load found no edges), it must expire with its state
+    local ttl = redis.call('PTTL', stateKey)
+    if ttl > 0 then
+        redis.call('PEXPIRE', set, ttl)
+    end
+    local extra = redis.call('ZCARD', set) - maxSize
+    if extra > 0 then
+        -- Keep the newest edges, from now on a missing member no longer means "not following"
+        redis.call('ZREMRANGEBYRANK', set, 0, extra - 1)
+        if state == 'complete' and ttl > 0 then
+            redis.call('SET', stateKey, 'partial', 'PX', ttl)
+        end
+    end
+end
+
+apply(KEYS[1], KEYS[2], ARGV[3])
+apply(KEYS[3], KEYS[4], ARGV[2])
+return 0
@@ -0,0 +1,13 @@
+-- Revokes every refresh token of a user and stores a new one.
+-- KEYS[1]: per-user set of token hashes
+-- ARGV[1]: token key prefix, ARGV[2]: new token hash, ARGV[3]: user id, ARGV[4]: ttl in ms
+local hashes = redis.call('SMEMBERS', KEYS[1])
+for _, hash in ipairs(hashes) do
+    redis.call('DEL', ARGV[1] .. hash)
+end
+redis.call('DEL', KEYS[1])
+
+redis.call('SET', ARGV[1] .. ARGV[2], ARGV[3], 'PX', ARGV[4])
+redis.call('SADD', KEYS[1], ARGV[2])
+redis.call('PEXPIRE', KEYS[1], ARGV[4])
+return 1
@@ -0,0 +1,16 @@
+-- Revokes every refresh token of the user owning the presented token.
+-- KEYS[1]: key of the presented token
+-- ARGV[1]: token key prefix, ARGV[2]: user set key prefix
+-- Returns the user id, or false if the token is unknown.
+local userId = redis.call('GET', KEYS[1])
+if not userId then
+    return false
+end
+
+local userKey = ARGV[2] .. userId
+local hashes = redis.call('SMEMBERS', userKey)
+for _, hash in ipairs(hashes) do
+    redis.call('DEL', ARGV[1] .. hash)
+end
+redis.call('DEL', userKey, KEYS[1])
+return userId
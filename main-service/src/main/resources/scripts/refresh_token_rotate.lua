@@ -0,0 +1,17 @@
+-- Consumes a refresh token and stores its replacement for the same user.
+-- KEYS[1]: key of the presented token
+-- ARGV[1]: token key prefix, ARGV[2]: user set key prefix, ARGV[3]: presented token hash,
+-- ARGV[4]: new token hash, ARGV[5]: ttl in ms
+-- Returns the user id, or false if the token is unknown, expired or already used.
+local userId = redis.call('GET', KEYS[1])
+if not userId then
+    return false
+end
+redis.call('DEL', KEYS[1])
+
+local userKey = ARGV[2] .. userId
+redis.call('SREM', userKey, ARGV[3])
+redis.call('SET', ARGV[1] .. ARGV[4], userId, 'PX', ARGV[5])
+redis.call('SADD', userKey, ARGV[4])
+redis.call('PEXPIRE', userKey, ARGV[5])
+return userId
@@ -0,0 +1,13 @@
+-- Caches follow counts loaded from the database, unless they are already cached or were invalidated
+-- since the load started.
+-- KEYS[1]: stats key, KEYS[2]: generation key
+-- ARGV[1]: generation read before the load ('' if none), ARGV[2]: followers, ARGV[3]: following,
+-- ARGV[4]: TTL in ms
+-- Returns 1 if cached, 0 if skipped
+local generation = redis.call('GET', KEYS[2]) or ''
+if generation ~= ARGV[1] or redis.call('EXISTS', KEYS[1]) == 1 then
+    return 0
+end
+redis.call('HSET', KEYS[1], 'followers', ARGV[2], 'following', ARGV[3])
+redis.call('PEXPIRE', KEYS[1], ARGV[4])
+return 1
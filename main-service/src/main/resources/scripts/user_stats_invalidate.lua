@@ -0,0 +1,10 @@
+-- Drops cached follow counts and bumps their generation, so a load that read the database before the
+-- change cannot cache its stale result afterwards (see user_stats_fill.lua).
+-- KEYS: stats key, generation key, repeated per user
+-- ARGV[1]: generation TTL in ms, must outlive any load in flight
+for i = 1, #KEYS, 2 do
+    redis.call('DEL', KEYS[i])
+    redis.call('INCR', KEYS[i + 1])
+    redis.call('PEXPIRE', KEYS[i + 1], ARGV[1])
+end
+return 0
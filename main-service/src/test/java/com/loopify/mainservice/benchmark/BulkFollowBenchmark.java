@@ -0,0 +1,206 @@
+package com.loopify.mainservice.benchmark;
+
+import com.loopify.mainservice.enums.NotificationType;
+import com.loopify.mainservice.model.NotificationOutbox;
+import com.loopify.mainservice.repository.user.FollowBatchRepository;
+import com.loopify.mainservice.repository.user.UserStatsRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Following 30 users: the previous loop of single follow calls (exists check, two user loads, insert,
+ * two counter upserts and an outbox insert, one transaction each) against the bulk path (one user
+ * query, one existing-follows query and a JDBC batch per table in one transaction). Runs on in-memory
+ * H2 in MySQL mode, where a statement costs no network round trip, so the gap understates what MySQL
+ * shows. Not part of the test run; start it through {@link #main(String[])} after {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkFollowBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int CREATORS = 1_000;
+    private static final int TARGETS = 30;
+    private static final String PAYLOAD = "{\"type\":\"FOLLOW\",\"actionUserNickname\":\"user\",\"actionUserAvatar\":null}";
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private FollowBatchRepository followBatchRepository;
+
+    private List<List<Long>> targetSets;
+    private long nextFollower;
+
+    @Setup
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:bulk_follow;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        followBatchRepository = new FollowBatchRepository(jdbcTemplate);
+
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, email VARCHAR(255), nickname VARCHAR(50), " +
+                "avatar_url VARCHAR(255), bio VARCHAR(255), is_active BOOLEAN NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE user_follows (follower_id BIGINT NOT NULL, following_id BIGINT NOT NULL, " +
+                "created_at TIMESTAMP NOT NULL, PRIMARY KEY (follower_id, following_id))");
+        jdbcTemplate.execute("CREATE TABLE user_stats (user_id BIGINT NOT NULL, shard INT NOT NULL, " +
+                "followers_count BIGINT NOT NULL, following_count BIGINT NOT NULL, PRIMARY KEY (user_id, shard))");
+        jdbcTemplate.execute("CREATE TABLE notification_outbox (id BIGINT PRIMARY KEY, notification_type VARCHAR(20) NOT NULL, " +
+                "payload TEXT NOT NULL, status VARCHAR(20) NOT NULL, created_at TIMESTAMP NOT NULL, " +
+                "updated_at TIMESTAMP NOT NULL, processed_at TIMESTAMP, retry_count INT NOT NULL, version BIGINT)");
+        jdbcTemplate.update("INSERT INTO users (id, email, nickname, is_active) " +
+                "SELECT X, CONCAT('user', X, '@example.com'), CONCAT('user', X), TRUE FROM SYSTEM_RANGE(1, " + USERS + ")");
+
+        SplittableRandom random = new SplittableRandom(42);
+        targetSets = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            Set<Long> targets = new HashSet<>();
+            while (targets.size() < TARGETS) {
+                targets.add(1 + (long) random.nextInt(CREATORS));
+            }
+            targetSets.add(new ArrayList<>(targets));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Setup(Level.Iteration)
+    public void clearFollows() {
+        jdbcTemplate.execute("TRUNCATE TABLE user_follows");
+        jdbcTemplate.execute("TRUNCATE TABLE user_stats");
+        jdbcTemplate.execute("TRUNCATE TABLE notification_outbox");
+        nextFollower = CREATORS;
+    }
+
+    @Benchmark
+    public int singleCallLoop() {
+        long followerId = nextFollower();
+        int followed = 0;
+        for (Long followingId : targets(followerId)) {
+            Boolean result = transactionTemplate.execute(status -> followOne(followerId, followingId));
+            if (Boolean.TRUE.equals(result)) {
+                followed++;
+            }
+        }
+        return followed;
+    }
+
+    @Benchmark
+    public int bulk() {
+        long followerId = nextFollower();
+        List<Long> targets = targets(followerId);
+        Integer followed = transactionTemplate.execute(status -> followAll(followerId, targets));
+        return followed == null ? 0 : followed;
+    }
+
+    private boolean followOne(long followerId, long followingId) {
+        Integer exists = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_follows WHERE follower_id = ? AND following_id = ?",
+                Integer.class, followerId, followingId);
+        if (exists != null && exists > 0) {
+            return false;
+        }
+        Map<String, Object> follower = jdbcTemplate.queryForMap("SELECT * FROM users WHERE id = ?", followerId);
+        jdbcTemplate.queryForMap("SELECT * FROM users WHERE id = ?", followingId);
+        jdbcTemplate.update("INSERT INTO user_follows (follower_id, following_id, created_at) VALUES (?, ?, ?)",
+                followerId, followingId, Timestamp.valueOf(LocalDateTime.now()));
+        namedJdbcTemplate.update(UserStatsRepository.ADD_COUNTS_SQL, counts(followingId, 1, 0));
+        namedJdbcTemplate.update(UserStatsRepository.ADD_COUNTS_SQL, counts(followerId, 0, 1));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO notification_outbox (id, notification_type, payload, status, created_at, " +
+                        "updated_at, retry_count, version) VALUES (?, ?, ?, 'PENDING', ?, ?, 0, 0)",
+                ThreadLocalRandom.current().nextLong(Long.MAX_VALUE), NotificationType.FOLLOW.name(),
+                PAYLOAD.replace("user", (String) follower.get("NICKNAME")), now, now);
+        return true;
+    }
+
+    private int followAll(long followerId, List<Long> targets) {
+        List<Long> userIds = new ArrayList<>(targets);
+        userIds.add(followerId);
+        List<Map<String, Object>> users = namedJdbcTemplate.queryForList(
+                "SELECT id, nickname, avatar_url FROM users WHERE id IN (:ids) AND is_active = TRUE", Map.of("ids", userIds));
+        String nickname = users.stream()
+                .filter(user -> ((Number) user.get("ID")).longValue() == followerId)
+                .map(user -> (String) user.get("NICKNAME"))
+                .findFirst()
+                .orElseThrow();
+        Set<Long> existing = new HashSet<>(namedJdbcTemplate.queryForList(
+                "SELECT following_id FROM user_follows WHERE follower_id = :followerId AND following_id IN (:ids)",
+                Map.of("followerId", followerId, "ids", targets), Long.class));
+        List<Long> toInsert = targets.stream().filter(id -> !existing.contains(id)).toList();
+        int[] counts = followBatchRepository.insertFollows(followerId, toInsert, LocalDateTime.now());
+
+        List<Long> followed = new ArrayList<>();
+        List<NotificationOutbox> outbox = new ArrayList<>();
+        List<SqlParameterSource> stats = new ArrayList<>();
+        for (int i = 0; i < toInsert.size(); i++) {
+            if (counts[i] != 0) {
+                followed.add(toInsert.get(i));
+                stats.add(counts(toInsert.get(i), 1, 0));
+                outbox.add(NotificationOutbox.builder()
+                        .id(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE))
+                        .notificationType(NotificationType.FOLLOW)
+                        .payload(PAYLOAD.replace("user", nickname))
+                        .build());
+            }
+        }
+        stats.add(counts(followerId, 0, followed.size()));
+        namedJdbcTemplate.batchUpdate(UserStatsRepository.ADD_COUNTS_SQL, stats.toArray(SqlParameterSource[]::new));
+        followBatchRepository.insertOutbox(outbox);
+        return followed.size();
+    }
+
+    private long nextFollower() {
+        long followerId = ++nextFollower;
+        if (nextFollower >= USERS) {
+            // Wrapped around, the follows exist already and are skipped
+            nextFollower = CREATORS;
+        }
+        return followerId;
+    }
+
+    private List<Long> targets(long followerId) {
+        return targetSets.get((int) (followerId % targetSets.size()));
+    }
+
+    private static MapSqlParameterSource counts(long userId, long followersDelta, long followingDelta) {
+        return new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("shard", ThreadLocalRandom.current().nextInt(16))
+                .addValue("followersDelta", followersDelta)
+                .addValue("followingDelta", followingDelta);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BulkFollowBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
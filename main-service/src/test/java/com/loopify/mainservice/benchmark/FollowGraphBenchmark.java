@@ -0,0 +1,80 @@
+package com.loopify.mainservice.benchmark;
+
+import com.loopify.mainservice.graph.CompressedAdjacency;
+import com.loopify.mainservice.graph.FollowGraph;
+import com.loopify.mainservice.graph.FriendsOfFriends;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Friends-of-friends suggestions on a synthetic graph of 1M users and ~10M follows. Targets are skewed
+ * towards low ids so a few accounts have hundreds of thousands of followers, like celebrity accounts do.
+ * The setup prints the compressed size next to what plain {@code long[]} adjacency lists would take. Not
+ * part of the test run; start it through {@link #main(String[])} after {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class FollowGraphBenchmark {
+
+    private static final int USERS = 1_000_000;
+    private static final int MAX_FOLLOWING = 20;
+
+    private FollowGraph graph;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        random = new SplittableRandom(42);
+        CompressedAdjacency.Builder builder = new CompressedAdjacency.Builder(USERS, (long) USERS * MAX_FOLLOWING / 2);
+        long[] targets = new long[MAX_FOLLOWING];
+        for (long user = 1; user <= USERS; user++) {
+            int count = random.nextInt(MAX_FOLLOWING + 1);
+            for (int i = 0; i < count; i++) {
+                // Cubing a uniform value concentrates the follows on the lowest ids
+                double u = random.nextDouble();
+                targets[i] = 1 + (long) (u * u * u * USERS);
+            }
+            Arrays.sort(targets, 0, count);
+            for (int i = 0; i < count; i++) {
+                if (targets[i] != user) {
+                    builder.add(user, targets[i]);
+                }
+            }
+        }
+        CompressedAdjacency base = builder.build();
+        graph = new FollowGraph(base);
+        long plainBytes = base.edgeCount() * Long.BYTES + (long) base.nodeCount() * (16 + Long.BYTES + 48);
+        System.out.printf("%n%d users, %d edges: %d MB compressed, ~%d MB as long[] lists in a HashMap%n",
+                base.nodeCount(), base.edgeCount(), base.sizeInBytes() >> 20, plainBytes >> 20);
+    }
+
+    @Benchmark
+    public FriendsOfFriends.Result suggest() {
+        long user = 1 + random.nextInt(USERS);
+        return FriendsOfFriends.suggest(graph, user, 20, 500, 1000, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Benchmark
+    public void decodeNeighbors(Blackhole blackhole) {
+        long user = 1 + random.nextInt(USERS);
+        blackhole.consume(graph.following(user));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FollowGraphBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,107 @@
+package com.loopify.mainservice.benchmark;
+
+import com.loopify.mainservice.graph.SortedLongSets;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Mutual follower intersection on two 1M follower lists sharing ~10% of their ids, plus a skewed 10k x 1M
+ * case where galloping applies. The boxed HashSet variant stands in for the previous implementation: its
+ * {@code List.contains} filter is O(n*m) and does not finish at this size, see {@code legacyListContains}
+ * at 20k for the trend. Not part of the test run; start it through {@link #main(String[])} after
+ * {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class MutualFollowersBenchmark {
+
+    private static final int LARGE = 1_000_000;
+    private static final int SMALL = 10_000;
+    private static final int LEGACY = 20_000;
+
+    private long[] followersA;
+    private long[] followersB;
+    private long[] followersSmall;
+    private long[] out;
+
+    private List<Long> boxedA;
+    private List<Long> boxedB;
+    private List<Long> legacyA;
+    private List<Long> legacyB;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        // Each list draws 1M of 10M user ids independently, so about 10% of the ids are shared
+        followersA = randomSortedIds(random, LARGE, 10_000_000);
+        followersB = randomSortedIds(random, LARGE, 10_000_000);
+        followersSmall = randomSortedIds(random, SMALL, 10_000_000);
+        out = new long[LARGE];
+
+        boxedA = Arrays.stream(followersA).boxed().collect(Collectors.toCollection(ArrayList::new));
+        boxedB = Arrays.stream(followersB).boxed().collect(Collectors.toCollection(ArrayList::new));
+        legacyA = boxedA.subList(0, LEGACY);
+        legacyB = boxedB.subList(0, LEGACY);
+    }
+
+    private static long[] randomSortedIds(SplittableRandom random, int size, int range) {
+        long[] ids = random.longs(size * 2L, 1, range).distinct().limit(size).toArray();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    @Benchmark
+    public int mergeLargeByLarge() {
+        return SortedLongSets.intersect(followersA, followersA.length, followersB, followersB.length, out);
+    }
+
+    @Benchmark
+    public int countLargeByLarge() {
+        return SortedLongSets.intersectionSize(followersA, followersA.length, followersB, followersB.length);
+    }
+
+    @Benchmark
+    public int gallopSmallByLarge() {
+        return SortedLongSets.intersect(followersSmall, followersSmall.length, followersB, followersB.length, out);
+    }
+
+    @Benchmark
+    public void boxedHashSetLargeByLarge(Blackhole blackhole) {
+        Set<Long> set = new HashSet<>(boxedA);
+        List<Long> result = new ArrayList<>();
+        for (Long id : boxedB) {
+            if (set.contains(id)) {
+                result.add(id);
+            }
+        }
+        blackhole.consume(result);
+    }
+
+    @Benchmark
+    public void legacyListContains(Blackhole blackhole) {
+        blackhole.consume(legacyB.stream().filter(legacyA::contains).collect(Collectors.toList()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MutualFollowersBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,102 @@
+package com.loopify.mainservice.security;
+
+import com.loopify.mainservice.support.EmbeddedRedisTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the verification code scripts against an embedded Redis, no application context needed.
+ */
+class EmailCodeScriptsTest extends EmbeddedRedisTest {
+
+    private VerificationCodeStore codeStore;
+    private CodeRequestThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        codeStore = new VerificationCodeStore(redisTemplate);
+        ReflectionTestUtils.setField(codeStore, "maxAttempts", 3);
+        throttle = new CodeRequestThrottle(redisTemplate);
+        ReflectionTestUtils.setField(throttle, "window", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(throttle, "maxPerEmail", 2);
+        ReflectionTestUtils.setField(throttle, "maxPerIp", 3);
+    }
+
+    @Test
+    void validCodeIsConsumed() {
+        codeStore.store("a@test.com", "123456", Duration.ofMinutes(5));
+
+        assertThat(codeStore.verify("a@test.com", "123456")).isEqualTo(VerificationCodeStore.Result.VALID);
+        assertThat(codeStore.verify("a@test.com", "123456")).isEqualTo(VerificationCodeStore.Result.MISSING);
+    }
+
+    @Test
+    void codeIsDiscardedAfterMaxFailedAttempts() {
+        codeStore.store("a@test.com", "123456", Duration.ofMinutes(5));
+
+        assertThat(codeStore.verify("a@test.com", "000000")).isEqualTo(VerificationCodeStore.Result.INVALID);
+        assertThat(codeStore.verify("a@test.com", "000001")).isEqualTo(VerificationCodeStore.Result.INVALID);
+        assertThat(codeStore.verify("a@test.com", "000002")).isEqualTo(VerificationCodeStore.Result.LOCKED);
+        assertThat(codeStore.verify("a@test.com", "123456")).isEqualTo(VerificationCodeStore.Result.MISSING);
+    }
+
+    @Test
+    void newCodeResetsFailedAttempts() {
+        codeStore.store("a@test.com", "123456", Duration.ofMinutes(5));
+        codeStore.verify("a@test.com", "000000");
+        codeStore.verify("a@test.com", "000001");
+
+        codeStore.store("a@test.com", "654321", Duration.ofMinutes(5));
+
+        assertThat(codeStore.verify("a@test.com", "000002")).isEqualTo(VerificationCodeStore.Result.INVALID);
+        assertThat(codeStore.verify("a@test.com", "654321")).isEqualTo(VerificationCodeStore.Result.VALID);
+    }
+
+    @Test
+    void failedAttemptsExpireWithTheCode() {
+        codeStore.store("a@test.com", "123456", Duration.ofMinutes(5));
+        codeStore.verify("a@test.com", "000000");
+
+        Long ttl = redisTemplate.getExpire("email_code_attempts:a@test.com");
+        assertThat(ttl).isPositive().isLessThanOrEqualTo(300);
+    }
+
+    @Test
+    void throttlesPerEmailIgnoringCase() {
+        assertThat(throttle.tryAcquire("a@test.com", "10.0.0.1")).isZero();
+        assertThat(throttle.tryAcquire("A@Test.com", "10.0.0.2")).isZero();
+
+        Duration retryAfter = throttle.tryAcquire("a@test.com", "10.0.0.3");
+        assertThat(retryAfter).isPositive().isLessThanOrEqualTo(Duration.ofMinutes(10));
+        // Other addresses are unaffected
+        assertThat(throttle.tryAcquire("b@test.com", "10.0.0.3")).isZero();
+    }
+
+    @Test
+    void throttlesPerIp() {
+        assertThat(throttle.tryAcquire("a@test.com", "10.0.0.1")).isZero();
+        assertThat(throttle.tryAcquire("b@test.com", "10.0.0.1")).isZero();
+        assertThat(throttle.tryAcquire("c@test.com", "10.0.0.1")).isZero();
+
+        assertThat(throttle.tryAcquire("d@test.com", "10.0.0.1")).isPositive();
+        // A rejected request does not use up the email's allowance
+        assertThat(throttle.tryAcquire("d@test.com", "10.0.0.2")).isZero();
+    }
+
+    @Test
+    void windowSlides() throws InterruptedException {
+        ReflectionTestUtils.setField(throttle, "window", Duration.ofMillis(300));
+        assertThat(throttle.tryAcquire("a@test.com", "10.0.0.1")).isZero();
+        assertThat(throttle.tryAcquire("a@test.com", "10.0.0.1")).isZero();
+        assertThat(throttle.tryAcquire("a@test.com", "10.0.0.1")).isPositive();
+
+        Thread.sleep(350);
+
+        assertThat(throttle.tryAcquire("a@test.com", "10.0.0.1")).isZero();
+    }
+}
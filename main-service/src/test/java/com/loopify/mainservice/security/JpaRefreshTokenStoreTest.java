@@ -0,0 +1,88 @@
+package com.loopify.mainservice.security;
+
+import com.loopify.mainservice.dto.response.user.AuthResponse;
+import com.loopify.mainservice.model.user.User;
+import com.loopify.mainservice.repository.user.RefreshTokenRepository;
+import com.loopify.mainservice.repository.user.UserRepository;
+import com.loopify.mainservice.service.EmailService;
+import com.loopify.mainservice.service.user.impl.AuthServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Refresh token rotation through the JPA store, driven by {@link AuthServiceImpl#refreshToken} so the
+ * service's own transaction settings are in play.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "app.refresh-token.store=jpa",
+        "app.jwt.refresh-token-expiration-ms=60000",
+        "app.email-code.ttl-minutes=5",
+        "app.email-code.length=4"
+})
+@Import({JpaRefreshTokenStore.class, AuthServiceImpl.class, SimpleMeterRegistry.class})
+// Each service call commits on its own, as in production
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JpaRefreshTokenStoreTest {
+
+    @Autowired
+    private AuthServiceImpl authService;
+    @Autowired
+    private RefreshTokenStore refreshTokenStore;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @MockitoBean
+    private JwtService jwtService;
+    @MockitoBean
+    private AccessTokenRevocationService accessTokenRevocationService;
+    @MockitoBean
+    private EmailService emailService;
+    @MockitoBean
+    private VerificationCodeStore verificationCodeStore;
+    @MockitoBean
+    private CodeRequestThrottle codeRequestThrottle;
+    @MockitoBean
+    private GoogleTokenVerifier googleTokenVerifier;
+
+    @Test
+    void refreshRotatesTokenAndRevokesThePresentedOne() {
+        when(jwtService.generateToken(any())).thenReturn("access-token");
+        User user = userRepository.save(User.builder()
+                .email("rotate@example.com")
+                .nickname("rotate")
+                .authProvider(User.AuthProvider.EMAIL_CODE)
+                .isActive(true)
+                .build());
+        String issued = refreshTokenStore.issue(user.getId());
+
+        AuthResponse response = authService.refreshToken(issued);
+
+        assertThat(response.refreshToken()).isNotEqualTo(issued);
+        assertThat(refreshTokenRepository.findByToken(issued)).get()
+                .satisfies(token -> assertThat(token.getIsRevoked()).isTrue());
+        assertThat(refreshTokenRepository.findByToken(response.refreshToken())).get()
+                .satisfies(token -> assertThat(token.getIsRevoked()).isFalse());
+        // The rotated-away token is spent, the new one works
+        assertThatThrownBy(() -> authService.refreshToken(issued)).isInstanceOf(RuntimeException.class);
+        assertThat(authService.refreshToken(response.refreshToken()).refreshToken()).isNotBlank();
+    }
+}
@@ -0,0 +1,49 @@
+package com.loopify.mainservice.service.user;
+
+import com.loopify.mainservice.support.EmbeddedRedisTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the follow set scripts against an embedded Redis, no application context needed.
+ */
+class FollowGraphScriptsTest extends EmbeddedRedisTest {
+
+    private static final RedisScript<Long> LOAD_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/follow_graph_load.lua"), Long.class);
+    private static final RedisScript<Long> UPDATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/follow_graph_update.lua"), Long.class);
+
+    private static final String FOLLOWING_SET = "follow_graph:following:1";
+    private static final String FOLLOWING_STATE = FOLLOWING_SET + ":state";
+    private static final String FOLLOWERS_SET = "follow_graph:followers:2";
+    private static final String FOLLOWERS_STATE = FOLLOWERS_SET + ":state";
+
+    @Test
+    void followAfterAnEmptyLoadCreatesAnExpiringSet() {
+        load(FOLLOWING_SET, FOLLOWING_STATE);
+        load(FOLLOWERS_SET, FOLLOWERS_STATE);
+        assertThat(redisTemplate.hasKey(FOLLOWING_SET)).isFalse();
+
+        redisTemplate.execute(UPDATE_SCRIPT, List.of(FOLLOWING_SET, FOLLOWING_STATE, FOLLOWERS_SET, FOLLOWERS_STATE),
+                "1", "1", "2", "1000", "100");
+
+        assertThat(redisTemplate.opsForZSet().score(FOLLOWING_SET, "2")).isEqualTo(1000.0);
+        assertThat(redisTemplate.getExpire(FOLLOWING_SET, TimeUnit.MILLISECONDS)).isPositive();
+        assertThat(redisTemplate.opsForZSet().score(FOLLOWERS_SET, "1")).isEqualTo(1000.0);
+        assertThat(redisTemplate.getExpire(FOLLOWERS_SET, TimeUnit.MILLISECONDS)).isPositive();
+    }
+
+    // Loads no edges, as for a user who follows nobody yet
+    private static void load(String set, String state) {
+        redisTemplate.opsForValue().set(state, "loading:t");
+        Long stored = redisTemplate.execute(LOAD_SCRIPT, List.of(set, state), "t", "complete", "60000");
+        assertThat(stored).isEqualTo(1L);
+    }
+}
@@ -0,0 +1,73 @@
+package com.loopify.mainservice.service.user;
+
+import com.loopify.mainservice.dto.user.FollowCounts;
+import com.loopify.mainservice.repository.user.UserStatsRepository;
+import com.loopify.mainservice.support.EmbeddedRedisTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the follow counts cache against an embedded Redis, with a follow committing while a read loads.
+ */
+class UserStatsServiceTest extends EmbeddedRedisTest {
+
+    private static final long USER_ID = 7L;
+    private static final long FOLLOWER_ID = 8L;
+
+    private UserStatsRepository userStatsRepository;
+    private UserStatsService userStatsService;
+
+    @BeforeEach
+    void setUp() {
+        userStatsRepository = mock(UserStatsRepository.class);
+        userStatsService = new UserStatsService(userStatsRepository, redisTemplate, mock(NamedParameterJdbcTemplate.class));
+        ReflectionTestUtils.setField(userStatsService, "cacheTtl", Duration.ofHours(1));
+    }
+
+    @Test
+    void loadedCountsAreCached() {
+        when(userStatsRepository.sumCounts(USER_ID)).thenReturn(new FollowCounts(3, 4));
+
+        assertThat(userStatsService.getCounts(USER_ID)).isEqualTo(new FollowCounts(3, 4));
+        assertThat(userStatsService.getCounts(USER_ID)).isEqualTo(new FollowCounts(3, 4));
+        verify(userStatsRepository, times(1)).sumCounts(USER_ID);
+    }
+
+    @Test
+    void loadThatPredatesAFollowIsNotCached() {
+        // The sum is read, then the follow commits before the load caches it
+        when(userStatsRepository.sumCounts(USER_ID))
+                .thenAnswer(invocation -> {
+                    userStatsService.onFollowChanged(new FollowChangedEvent(FOLLOWER_ID, USER_ID, true));
+                    return new FollowCounts(3, 4);
+                })
+                .thenReturn(new FollowCounts(4, 4));
+
+        assertThat(userStatsService.getCounts(USER_ID)).isEqualTo(new FollowCounts(3, 4));
+        assertThat(userStatsService.getCounts(USER_ID)).isEqualTo(new FollowCounts(4, 4));
+        assertThat(userStatsService.getCounts(USER_ID)).isEqualTo(new FollowCounts(4, 4));
+        verify(userStatsRepository, times(2)).sumCounts(USER_ID);
+    }
+
+    @Test
+    void followCommittedAfterTheLoadIsNotCountedTwice() {
+        when(userStatsRepository.sumCounts(USER_ID))
+                .thenReturn(new FollowCounts(4, 4));
+
+        userStatsService.getCounts(USER_ID);
+        // Its row was already in the sum above, the event must not add it on top
+        userStatsService.onFollowChanged(new FollowChangedEvent(FOLLOWER_ID, USER_ID, true));
+
+        assertThat(userStatsService.getCounts(USER_ID)).isEqualTo(new FollowCounts(4, 4));
+    }
+}